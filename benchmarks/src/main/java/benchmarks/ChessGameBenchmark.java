@@ -0,0 +1,76 @@
+package benchmarks;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rules-core hot paths: the calls the server makes to validate a move and
+ * the client makes to report game state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessGameBenchmark {
+
+    @Param({"start", "middlegame", "check", "checkmate", "stalemate"})
+    public String position;
+
+    private ChessGame game;
+    private ChessPosition[] ownPieces;
+
+    @Setup
+    public void setup() {
+        game = Positions.named(position);
+        ChessGame.TeamColor toMove = game.getTeamTurn();
+        long pieces = game.getBoard().getTeamOccupancy(toMove);
+        ownPieces = new ChessPosition[Long.bitCount(pieces)];
+        for (int i = 0; pieces != 0; pieces &= pieces - 1) {
+            ownPieces[i++] = Bitboards.position(Long.numberOfTrailingZeros(pieces));
+        }
+    }
+
+    /** validMoves for every piece of the side to move */
+    @Benchmark
+    public void validMoves(Blackhole bh) {
+        for (ChessPosition position : ownPieces) {
+            bh.consume(game.validMoves(position));
+        }
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInStalemate() {
+        return game.isInStalemate(game.getTeamTurn());
+    }
+
+    /** What the client runs on every LOAD_GAME: all three checks for both sides */
+    @Benchmark
+    public void fullStatusBothSides(Blackhole bh) {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            bh.consume(game.isInCheck(color));
+            bh.consume(game.isInCheckmate(color));
+            bh.consume(game.isInStalemate(color));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long perft3() {
+        return Perft.perft(game, 3);
+    }
+}
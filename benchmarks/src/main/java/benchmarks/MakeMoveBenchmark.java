@@ -0,0 +1,87 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessGameAdapter;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import dataaccess.DataAccessException;
+import dataaccess.MemoryDataAccess;
+import model.Auth;
+import model.Game;
+import model.User;
+import org.openjdk.jmh.annotations.*;
+import server.websocket.GameWebSocketEndpoint;
+import websocket.commands.UserGameCommand;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.NotificationMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A MAKE_MOVE command end to end against an in-memory DAO: auth and game
+ * lookup, move validation, the game update, and JSON encoding of the
+ * LOAD_GAME and notification frames that would be broadcast. Only the socket
+ * write itself is left out.
+ * <p>
+ * Both knights shuttle out and back so the game never ends and every
+ * invocation makes one legal move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MakeMoveBenchmark {
+
+    private static final String WHITE_TOKEN = "white-token";
+    private static final String BLACK_TOKEN = "black-token";
+
+    /** Encodes frames as GameConnections does, with games as FEN */
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(ChessGame.class, new ChessGameAdapter(ChessGameAdapter.Format.FEN)).create();
+    private GameWebSocketEndpoint endpoint;
+    private UserGameCommand[] commands;
+    private int next;
+
+    @Setup
+    public void setup() throws DataAccessException {
+        MemoryDataAccess dao = new MemoryDataAccess();
+        dao.createUser(new User("white", "pw", "w@example.com"));
+        dao.createUser(new User("black", "pw", "b@example.com"));
+        dao.createAuth(new Auth(WHITE_TOKEN, "white"));
+        dao.createAuth(new Auth(BLACK_TOKEN, "black"));
+        int gameID = dao.createGame(new Game(0, "white", "black", "bench", new ChessGame()));
+        endpoint = new GameWebSocketEndpoint(dao);
+
+        commands = new UserGameCommand[]{
+                command(WHITE_TOKEN, gameID, 1, 7, 3, 6),
+                command(BLACK_TOKEN, gameID, 8, 7, 6, 6),
+                command(WHITE_TOKEN, gameID, 3, 6, 1, 7),
+                command(BLACK_TOKEN, gameID, 6, 6, 8, 7),
+        };
+    }
+
+    private static UserGameCommand command(String token, int gameID, int fromRow, int fromCol,
+                                           int toRow, int toCol) {
+        UserGameCommand.Move move = new UserGameCommand.Move();
+        move.start = new ChessPosition(fromRow, fromCol);
+        move.end = new ChessPosition(toRow, toCol);
+        return new UserGameCommand(UserGameCommand.CommandType.MAKE_MOVE, token, gameID, move);
+    }
+
+    @Benchmark
+    public int makeMove() throws DataAccessException {
+        UserGameCommand cmd = commands[next];
+        next = (next + 1) % commands.length;
+
+        GameWebSocketEndpoint.MoveOutcome outcome = endpoint.applyMove(cmd);
+        if (outcome.error() != null) {
+            throw new IllegalStateException(outcome.error());
+        }
+        String loadGame = gson.toJson(new LoadGameMessage(outcome.game()));
+        String notification = gson.toJson(new NotificationMessage(outcome.notification()));
+        return loadGame.length() + notification.length();
+    }
+}
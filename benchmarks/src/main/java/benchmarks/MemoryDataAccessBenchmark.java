@@ -0,0 +1,48 @@
+package benchmarks;
+
+import chess.ChessGame;
+import dataaccess.DataAccessException;
+import dataaccess.MemoryDataAccess;
+import model.Game;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The read-modify-write cycle the WebSocket handlers run against the DAO.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryDataAccessBenchmark {
+
+    @Param({"1", "1000"})
+    public int gameCount;
+
+    private MemoryDataAccess dao;
+    private int gameID;
+
+    @Setup
+    public void setup() {
+        dao = new MemoryDataAccess();
+        for (int i = 0; i < gameCount; i++) {
+            gameID = dao.createGame(new Game(0, "white", "black", "game" + i, new ChessGame()));
+        }
+    }
+
+    @Benchmark
+    public Game getGame() {
+        return dao.getGame(gameID);
+    }
+
+    @Benchmark
+    public Game getAndUpdateGame() throws DataAccessException {
+        Game game = dao.getGame(gameID);
+        dao.updateGame(new Game(game.gameID(), game.whiteUsername(), game.blackUsername(),
+                game.gameName(), game.game()));
+        return game;
+    }
+}
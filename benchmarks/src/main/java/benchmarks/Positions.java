@@ -0,0 +1,99 @@
+package benchmarks;
+
+import chess.*;
+
+/**
+ * Representative positions shared by the benchmarks, written as board
+ * diagrams (rank 8 first, upper case for white) so they are easy to eyeball.
+ */
+final class Positions {
+
+    private Positions() {
+    }
+
+    static ChessGame named(String name) {
+        return switch (name) {
+            case "start" -> new ChessGame();
+            case "middlegame" -> fromDiagram("""
+                    |r| |b|q| |r|k| |
+                    |p|p| | |b|p|p|p|
+                    | | |n|p| |n| | |
+                    | | |p| |p| | | |
+                    | | |B| |P| | | |
+                    | | |P|P| |N| | |
+                    |P|P| | | |P|P|P|
+                    |R|N|B|Q| |R|K| |
+                    """, ChessGame.TeamColor.WHITE);
+            case "check" -> fromDiagram("""
+                    |r|n|b| |k|b|n|r|
+                    |p|p|p|p| |p|p|p|
+                    | | | | | | | | |
+                    | | | | |p| | | |
+                    | | | | |P| | |q|
+                    | | | | | |P| | |
+                    |P|P|P|P| | |P|P|
+                    |R|N|B|Q|K|B|N|R|
+                    """, ChessGame.TeamColor.WHITE);
+            case "checkmate" -> fromDiagram("""
+                    |r|n|b| |k|b|n|r|
+                    |p|p|p|p| |p|p|p|
+                    | | | | | | | | |
+                    | | | | |p| | | |
+                    | | | | | | |P|q|
+                    | | | | | |P| | |
+                    |P|P|P|P|P| | |P|
+                    |R|N|B|Q|K|B|N|R|
+                    """, ChessGame.TeamColor.WHITE);
+            case "stalemate" -> fromDiagram("""
+                    |k| | | | | | | |
+                    | | | | | | | | |
+                    | |Q| | | | | | |
+                    | | | | | | | | |
+                    | | | | | | | | |
+                    | | | | | | | | |
+                    | | | | | | | | |
+                    | | | | | | | |K|
+                    """, ChessGame.TeamColor.BLACK);
+            default -> throw new IllegalArgumentException("Unknown position " + name);
+        };
+    }
+
+    static ChessGame fromDiagram(String diagram, ChessGame.TeamColor toMove) {
+        ChessBoard board = new ChessBoard();
+        int row = 8;
+        int col = 1;
+        for (char c : diagram.toCharArray()) {
+            switch (c) {
+                case '\n' -> {
+                    row--;
+                    col = 1;
+                }
+                case ' ' -> col++;
+                case '|' -> {
+                }
+                default -> {
+                    ChessGame.TeamColor color = Character.isUpperCase(c)
+                            ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                    board.addPiece(ChessPosition.of(row, col), ChessPiece.of(color, typeOf(c)));
+                    col++;
+                }
+            }
+        }
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(toMove);
+        return game;
+    }
+
+    private static ChessPiece.PieceType typeOf(char c) {
+        return switch (Character.toLowerCase(c)) {
+            case 'k' -> ChessPiece.PieceType.KING;
+            case 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'r' -> ChessPiece.PieceType.ROOK;
+            case 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'n' -> ChessPiece.PieceType.KNIGHT;
+            case 'p' -> ChessPiece.PieceType.PAWN;
+            default -> throw new IllegalArgumentException("Unknown piece " + c);
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.engine.Engine;
+import chess.engine.SearchResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for the engine to search a position to a fixed depth, by search
+ * thread count. The table is cleared between calls by using a fresh engine,
+ * so each measurement is a cold search as a first hint would be.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"start", "middlegame"})
+    public String position;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"6"})
+    public int depth;
+
+    private ChessGame game;
+    private Engine engine;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        game = Positions.named(position);
+        engine = new Engine(64, threads);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public SearchResult search() {
+        return engine.analyze(game, depth);
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessGameAdapter;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChessGame JSON encoding as MySQLDataAccess stores it, on every updateGame,
+ * getGame and listGames row, in both of the adapter's formats.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"start", "middlegame"})
+    public String position;
+
+    @Param({"BOARD", "FEN", "BINARY"})
+    public ChessGameAdapter.Format format;
+
+    private Gson gson;
+    private ChessGame game;
+    private String json;
+
+    @Setup
+    public void setup() {
+        gson = new GsonBuilder().registerTypeAdapter(ChessGame.class, new ChessGameAdapter(format)).create();
+        game = Positions.named(position);
+        json = gson.toJson(game);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return gson.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame deserialize() {
+        return gson.fromJson(json, ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame roundTrip() {
+        return gson.fromJson(gson.toJson(game), ChessGame.class);
+    }
+}
@@ -3,23 +3,22 @@ package client;
 import chess.*;
 import ui.EscapeSequences;
 
-import java.util.Collection;
-
 public class BoardDrawer {
 
     public static void drawBoard(ChessGame game, ChessGame.TeamColor perspective) {
-        drawBoardWithHighlights(game, perspective, null, null);
+        drawBoardWithHighlights(game, perspective, null, 0L);
     }
 
     public static void drawBoardWithHighlights(
             ChessGame game,
             ChessGame.TeamColor perspective,
             ChessPosition selected,
-            Collection<ChessMove> legalMoves
+            long highlighted
     ) {
         System.out.print(EscapeSequences.ERASE_SCREEN + EscapeSequences.moveCursorToLocation(1, 1));
 
         ChessBoard board = game.getBoard();
+        int selectedSquare = (selected == null) ? -1 : Bitboards.square(selected);
 
         int startRank = (perspective == ChessGame.TeamColor.WHITE) ? 8 : 1;
         int endRank = (perspective == ChessGame.TeamColor.WHITE) ? 1 : 8;
@@ -36,15 +35,15 @@ public class BoardDrawer {
 
             for (int f = startFile; f != endFile + fileStep; f += fileStep) {
 
-                ChessPosition pos = new ChessPosition(r, f);
-                ChessPiece piece = board.getPiece(pos);
+                int square = Bitboards.square(r, f);
+                ChessPiece piece = board.getPiece(square);
 
                 String bg;
 
-                if (selected != null && selected.equals(pos)) {
+                if (square == selectedSquare) {
                     bg = EscapeSequences.SET_BG_COLOR_BLUE;
                 }
-                else if (legalMoves != null && legalMoves.stream().anyMatch(m -> m.getEndPosition().equals(pos))) {
+                else if ((highlighted & Bitboards.bit(square)) != 0) {
                     bg = EscapeSequences.SET_BG_COLOR_GREEN;
                 }
                 else {
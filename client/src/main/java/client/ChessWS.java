@@ -1,7 +1,9 @@
 package client;
 
 import chess.ChessGame;
+import chess.ChessGameAdapter;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
@@ -22,7 +24,8 @@ public class ChessWS implements WebSocket.Listener {
 
     private final URI uri;
     private WebSocket socket;
-    private final Gson gson = new Gson();
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(ChessGame.class, new ChessGameAdapter()).create();
 
     private ChessGame currentGame = null;
     private ChessGame.TeamColor perspective = ChessGame.TeamColor.WHITE;
@@ -179,38 +182,29 @@ public class ChessWS implements WebSocket.Listener {
             return;
         }
 
-        ChessGame.TeamColor white = ChessGame.TeamColor.WHITE;
-        ChessGame.TeamColor black = ChessGame.TeamColor.BLACK;
+        ChessGame.GameStatus white = currentGame.status(ChessGame.TeamColor.WHITE);
+        ChessGame.GameStatus black = currentGame.status(ChessGame.TeamColor.BLACK);
 
-        boolean whiteInCheck = currentGame.isInCheck(white);
-        boolean blackInCheck = currentGame.isInCheck(black);
-
-        boolean whiteInMate = currentGame.isInCheckmate(white);
-        boolean blackInMate = currentGame.isInCheckmate(black);
-
-        boolean whiteStalemated = currentGame.isInStalemate(white);
-        boolean blackStalemated = currentGame.isInStalemate(black);
-
-        if (whiteInMate) {
+        if (white == ChessGame.GameStatus.CHECKMATE) {
             System.out.println("[NOTIFICATION] " + whiteUsername + " has been CHECKMATED!");
             return;
         }
 
-        if (blackInMate) {
+        if (black == ChessGame.GameStatus.CHECKMATE) {
             System.out.println("[NOTIFICATION] " + blackUsername + " has been CHECKMATED!");
             return;
         }
 
-        if (whiteStalemated || blackStalemated) {
+        if (white == ChessGame.GameStatus.STALEMATE || black == ChessGame.GameStatus.STALEMATE) {
             System.out.println("[NOTIFICATION] Stalemate — the game is a draw.");
             return;
         }
 
-        if (whiteInCheck) {
+        if (white == ChessGame.GameStatus.CHECK) {
             System.out.println("[NOTIFICATION] " + whiteUsername + " is in CHECK!");
         }
 
-        if (blackInCheck) {
+        if (black == ChessGame.GameStatus.CHECK) {
             System.out.println("[NOTIFICATION] " + blackUsername + " is in CHECK!");
         }
     }
@@ -5,7 +5,6 @@ import client.ChessWS;
 import client.BoardDrawer;
 import websocket.commands.UserGameCommand;
 
-import java.util.Collection;
 import java.util.Scanner;
 
 public class GameplayUI {
@@ -141,9 +140,7 @@ public class GameplayUI {
             return;
         }
 
-        Collection<ChessMove> legalMoves = game.validMoves(pos);
-
-        BoardDrawer.drawBoardWithHighlights(game, ws.getPerspective(), pos, legalMoves);
+        BoardDrawer.drawBoardWithHighlights(game, ws.getPerspective(), pos, game.legalTargets(pos));
     }
 
     private boolean isValidAlg(String s) {
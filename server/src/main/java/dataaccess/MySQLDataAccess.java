@@ -15,7 +15,8 @@ import java.util.List;
 
 public class MySQLDataAccess implements DataAccess {
 
-    private final Gson gson = new GsonBuilder().registerTypeAdapter(ChessGame.class, new ChessGameAdapter()).create();
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(ChessGame.class, new ChessGameAdapter(ChessGameAdapter.Format.BINARY)).create();
 
     public MySQLDataAccess() throws DataAccessException {
         try {
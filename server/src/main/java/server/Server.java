@@ -1,23 +1,37 @@
 package server;
 
+import chess.ChessGame;
+import chess.ChessGameAdapter;
+import chess.engine.OpeningBook;
+import chess.engine.Tablebase;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import dataaccess.DataAccess;
 import dataaccess.DataAccessException;
 import dataaccess.MemoryDataAccess;
 import dataaccess.MySQLDataAccess;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
+import service.BookService;
 import service.UserService;
 import service.GameService;
 import server.websocket.GameWebSocketEndpoint;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 public class Server {
 
     private final DataAccess dao;
     private final Javalin server;
     private final UserService userService;
     private final GameService gameService;
-    private final Gson gson = new Gson();
+    private final BookService bookService;
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(ChessGame.class, new ChessGameAdapter()).create();
     private GameWebSocketEndpoint handler;
 
     public Server() {
@@ -31,13 +45,67 @@ public class Server {
         this.dao = tempDao;
         this.userService = new UserService(dao);
         this.gameService = new GameService(dao);
+        this.bookService = new BookService(dao, loadOpeningBook());
 
-        this.handler = new GameWebSocketEndpoint(dao);
+        this.handler = new GameWebSocketEndpoint(dao, loadTablebase());
 
         server = Javalin.create(config -> config.staticFiles.add("web"));
         registerEndpoints();
     }
 
+    /**
+     * Maps the book file named by the chess.book system property, or else
+     * builds one from the bundled openings.txt into a temporary file
+     *
+     * @return the book, or null if neither could be loaded
+     */
+    private static OpeningBook loadOpeningBook() {
+        try {
+            String configured = System.getProperty("chess.book");
+            if (configured != null) {
+                return OpeningBook.open(Path.of(configured));
+            }
+            try (InputStream lines = Server.class.getClassLoader().getResourceAsStream("openings.txt")) {
+                if (lines == null) {
+                    return null;
+                }
+                Path file = Files.createTempFile("openings", ".book");
+                file.toFile().deleteOnExit();
+                new OpeningBook.Builder()
+                        .addLines(new String(lines.readAllBytes(), StandardCharsets.UTF_8).lines().toList())
+                        .write(file);
+                return OpeningBook.open(file);
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Maps the tablebase file named by the chess.tablebase system property,
+     * or else solves the three-piece tables into a temporary file, which
+     * takes a second or two; four-piece tables must be built ahead of time
+     * with Tablebase's main
+     *
+     * @return the tablebase, or null if neither could be loaded
+     */
+    private static Tablebase loadTablebase() {
+        try {
+            String configured = System.getProperty("chess.tablebase");
+            if (configured != null) {
+                return Tablebase.open(Path.of(configured));
+            }
+            Path file = Files.createTempFile("tablebase", ".bin");
+            file.toFile().deleteOnExit();
+            new Tablebase.Builder().addAll(3).write(file);
+            return Tablebase.open(file);
+        } catch (IOException | IllegalArgumentException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
     private void handleRequest(Context ctx, RunnableWithException action) {
         try {
             action.run();
@@ -133,6 +201,13 @@ public class Server {
             ctx.status(200).result("{}");
         }));
 
+        // bookMoves
+        server.get("/book", ctx -> handleRequest(ctx, () -> {
+            String token = ctx.header("authorization");
+            var res = bookService.bookMoves(token, ctx.queryParam("fen"));
+            ctx.status(200).json(gson.toJson(res));
+        }));
+
         //ws
         server.ws("/ws", ws -> {
             ws.onConnect(handler::onConnect);
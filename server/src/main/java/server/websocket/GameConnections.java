@@ -1,6 +1,9 @@
 package server.websocket;
 
+import chess.ChessGame;
+import chess.ChessGameAdapter;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import model.Game;
 import websocket.messages.NotificationMessage;
 import websocket.messages.ServerMessage;
@@ -9,7 +12,8 @@ import io.javalin.websocket.WsContext;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class GameConnections {
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(ChessGame.class, new ChessGameAdapter(ChessGameAdapter.Format.FEN)).create();
     private final int gameID;
     private final ConcurrentHashMap<WsContext, String> sessions = new ConcurrentHashMap<>();
 
@@ -1,6 +1,7 @@
 package server.websocket;
 
 import chess.*;
+import chess.engine.Tablebase;
 import com.google.gson.*;
 import com.google.gson.GsonBuilder;
 import dataaccess.DataAccess;
@@ -18,12 +19,23 @@ import websocket.messages.NotificationMessage;
 import websocket.messages.ServerMessage;
 
 public class GameWebSocketEndpoint {
-    private static final Gson GSON = new GsonBuilder().create();
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(ChessGame.class, new ChessGameAdapter(ChessGameAdapter.Format.FEN)).create();
     private static final ConcurrentHashMap<Integer, GameConnections> GAMES = new ConcurrentHashMap<>();
     private final DataAccess dao;
+    private final Tablebase tablebase;
 
     public GameWebSocketEndpoint(DataAccess dao) {
+        this(dao, null);
+    }
+
+    /**
+     * @param tablebase tables to adjudicate small endgames with, or null to
+     *                  let every game be played out
+     */
+    public GameWebSocketEndpoint(DataAccess dao, Tablebase tablebase) {
         this.dao = dao;
+        this.tablebase = tablebase;
     }
 
     public void onConnect(WsConnectContext ctx) {
@@ -84,17 +96,6 @@ public class GameWebSocketEndpoint {
         return game;
     }
 
-    private ChessGame.TeamColor getPlayerTeam(Game model, String username, WsContext ctx) {
-        if (username.equals(model.whiteUsername())) {
-            return ChessGame.TeamColor.WHITE;
-        }
-        if (username.equals(model.blackUsername())) {
-            return ChessGame.TeamColor.BLACK;
-        }
-        sendError(ctx, "error: you are not a player in this game");
-        return null;
-    }
-
     private void handleConnect(WsContext ctx, UserGameCommand cmd) {
         if (requireCommand(cmd, ctx)) {return;}
 
@@ -219,75 +220,131 @@ public class GameWebSocketEndpoint {
         }
     }
 
+    /**
+     * Result of applying a MAKE_MOVE command: either an error for the sender,
+     * or the stored game and a notification for everyone else.
+     */
+    public record MoveOutcome(String error, Game game, String notification) {
+        static MoveOutcome failure(String error) {
+            return new MoveOutcome(error, null, null);
+        }
+    }
+
     private void handleMakeMove(WsContext ctx, UserGameCommand cmd) {
         if (requireCommand(cmd, ctx)) {return;}
 
-        Integer gameID = cmd.getGameID();
-        String token = cmd.getAuthToken();
-
         try {
-            Auth auth = requireAuth(token, ctx);
-            if (auth == null) {return;}
-
-            Game model = requireGame(gameID, ctx);
-            if (model == null) {return;}
-
-            ChessGame.TeamColor team = getPlayerTeam(model, auth.username(), ctx);
-            if (team == null) {return;}
-
-            ChessGame chessGame = model.game();
-            if (chessGame == null) {
-                sendError(ctx, "error: game is over. Type 'leave' to exit");
+            MoveOutcome outcome = applyMove(cmd);
+            if (outcome.error() != null) {
+                sendError(ctx, outcome.error());
                 return;
             }
 
-            var dto = cmd.move;
-            if (dto == null || dto.start == null || dto.end == null) {
-                sendError(ctx, "error: missing move data");
-                return;
-            }
+            GameConnections gc = GAMES.get(cmd.getGameID());
+            if (gc != null && outcome.game() != null) {
+                gc.broadcastJson(new LoadGameMessage(outcome.game()));
 
-            if (chessGame.getTeamTurn() != team) {
-                sendError(ctx, "error: not your turn");
-                return;
+                gc.broadcastNotificationExcept(new NotificationMessage(outcome.notification()), ctx);
             }
 
-            ChessPiece.PieceType promo = null;
-            if (dto.promotion != null) {
-                try {
-                    promo = ChessPiece.PieceType.valueOf(dto.promotion.toUpperCase());
-                } catch (IllegalArgumentException ex) {
-                    sendError(ctx, "error: illegal move");
-                    return;
-                }
-            }
+        } catch (DataAccessException ex) {
+            sendError(ctx, "error: server data error");
+        }
+    }
+
+    /**
+     * Validates and applies a MAKE_MOVE command against the data store,
+     * independent of any socket. handleMakeMove wraps this with the sends and
+     * broadcasts; benchmarks and tests can drive it directly.
+     */
+    public MoveOutcome applyMove(UserGameCommand cmd) throws DataAccessException {
+        Integer gameID = cmd.getGameID();
+
+        Auth auth = dao.getAuth(cmd.getAuthToken());
+        if (auth == null) {
+            return MoveOutcome.failure("error: invalid auth token");
+        }
+
+        Game model = dao.getGame(gameID);
+        if (model == null) {
+            return MoveOutcome.failure("error: game not found");
+        }
 
-            ChessMove move = new ChessMove(dto.start, dto.end, promo);
+        ChessGame.TeamColor team;
+        if (auth.username().equals(model.whiteUsername())) {
+            team = ChessGame.TeamColor.WHITE;
+        } else if (auth.username().equals(model.blackUsername())) {
+            team = ChessGame.TeamColor.BLACK;
+        } else {
+            return MoveOutcome.failure("error: you are not a player in this game");
+        }
+
+        ChessGame chessGame = model.game();
+        if (chessGame == null) {
+            return MoveOutcome.failure("error: game is over. Type 'leave' to exit");
+        }
 
+        var dto = cmd.move;
+        if (dto == null || dto.start == null || dto.end == null) {
+            return MoveOutcome.failure("error: missing move data");
+        }
+
+        if (chessGame.getTeamTurn() != team) {
+            return MoveOutcome.failure("error: not your turn");
+        }
+
+        ChessPiece.PieceType promo = null;
+        if (dto.promotion != null) {
             try {
-                chessGame.makeMove(move);
-            } catch (InvalidMoveException ex) {
-                sendError(ctx, "error: invalid move");
-                return;
+                promo = ChessPiece.PieceType.valueOf(dto.promotion.toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                return MoveOutcome.failure("error: illegal move");
             }
+        }
 
-            dao.updateGame(new Game(model.gameID(), model.whiteUsername(),
-                    model.blackUsername(), model.gameName(), chessGame));
+        ChessMove move = new ChessMove(dto.start, dto.end, promo);
 
-            Game fresh = dao.getGame(gameID);
+        try {
+            chessGame.makeMove(move);
+        } catch (InvalidMoveException ex) {
+            return MoveOutcome.failure("error: invalid move");
+        }
 
-            GameConnections gc = GAMES.get(gameID);
-            if (gc != null && fresh != null) {
-                gc.broadcastJson(new LoadGameMessage(fresh));
+        String notification = auth.username() + " moved " + dto.toReadable();
+        String adjudication = adjudicate(chessGame);
+        if (adjudication != null) {
+            // Ended the same way as a resignation, but players still get the final board
+            dao.updateGame(new Game(model.gameID(), model.whiteUsername(),
+                    model.blackUsername(), model.gameName(), null));
+            return new MoveOutcome(null, new Game(model.gameID(), model.whiteUsername(),
+                    model.blackUsername(), model.gameName(), chessGame), notification + ". " + adjudication);
+        }
 
-                gc.broadcastNotificationExcept(
-                        new NotificationMessage(auth.username() + " moved " + dto.toReadable()),
-                        ctx);
-            }
+        dao.updateGame(new Game(model.gameID(), model.whiteUsername(),
+                model.blackUsername(), model.gameName(), chessGame));
 
-        } catch (DataAccessException ex) {
-            sendError(ctx, "error: server data error");
+        return new MoveOutcome(null, dao.getGame(gameID), notification);
+    }
+
+    /**
+     * @return why the game is over by the tablebase, or null if it is not
+     * small enough to look up
+     */
+    private String adjudicate(ChessGame chessGame) {
+        Tablebase.Result result = tablebase == null ? null : tablebase.probe(chessGame);
+        if (result == null) {
+            return null;
         }
+        ChessGame.TeamColor toMove = chessGame.getTeamTurn();
+        ChessGame.TeamColor other = toMove == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        return switch (result.outcome()) {
+            case DRAW -> "Game adjudicated a draw by endgame tablebase";
+            case WIN -> "Game adjudicated to " + toMove + ", mate in " + result.movesToMate();
+            case LOSS -> result.distanceToMate() == 0
+                    ? "Checkmate, " + other + " wins"
+                    : "Game adjudicated to " + other + ", mate in " + result.movesToMate();
+        };
     }
 
     private void sendError(WsContext ctx, String msg) {
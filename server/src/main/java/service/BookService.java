@@ -0,0 +1,57 @@
+package service;
+
+import chess.ChessGame;
+import chess.Move;
+import chess.engine.OpeningBook;
+import dataaccess.DataAccess;
+import dataaccess.DataAccessException;
+import model.Auth;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BookService {
+    private final DataAccess dao;
+    private final OpeningBook book;
+
+    /**
+     * @param book the server's opening book, or null if it has none
+     */
+    public BookService(DataAccess dao, OpeningBook book) {
+        this.dao = dao;
+        this.book = book;
+    }
+
+    public record BookMove(String move, int weight) {}
+    public record BookMovesResult(List<BookMove> moves) {}
+
+    /**
+     * @param fen the position to look up, or null for the starting position
+     * @return the book's moves in the position, highest weight first, in
+     * coordinate notation such as "e2e4"; empty if the position is out of book
+     */
+    public BookMovesResult bookMoves(String authToken, String fen) throws DataAccessException {
+        if (authToken == null) {
+            throw new IllegalArgumentException("bad request");
+        }
+        Auth auth = dao.getAuth(authToken);
+        if (auth == null) {
+            throw new DataAccessException("unauthorized");
+        }
+
+        ChessGame game;
+        try {
+            game = (fen == null || fen.isBlank()) ? new ChessGame() : ChessGame.fromFen(fen);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("bad request");
+        }
+
+        List<BookMove> moves = new ArrayList<>();
+        if (book != null) {
+            for (OpeningBook.Entry entry : book.entries(game)) {
+                moves.add(new BookMove(Move.toString(Move.encode(entry.move())), entry.weight()));
+            }
+        }
+        return new BookMovesResult(moves);
+    }
+}
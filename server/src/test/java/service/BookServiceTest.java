@@ -0,0 +1,52 @@
+package service;
+
+import chess.engine.OpeningBook;
+import dataaccess.MemoryDataAccess;
+import org.junit.jupiter.api.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookServiceTest {
+    private MemoryDataAccess dao;
+    private BookService bookService;
+    private UserService userService;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        dao = new MemoryDataAccess();
+        userService = new UserService(dao);
+        Path file = Files.createTempFile("book", ".bin");
+        file.toFile().deleteOnExit();
+        new OpeningBook.Builder().addLines(List.of(
+                "e2e4 e7e5 g1f3",
+                "e2e4 c7c5",
+                "d2d4 d7d5")).write(file);
+        bookService = new BookService(dao, OpeningBook.open(file));
+    }
+
+    @Test
+    public void listsBookMovesByWeight() throws Exception {
+        String token = userService.register(new UserService.RegisterRequest("b1", "pw", "b1@b")).authToken();
+
+        var start = bookService.bookMoves(token, null);
+        assertEquals(List.of(new BookService.BookMove("e2e4", 2), new BookService.BookMove("d2d4", 1)), start.moves());
+
+        var afterE4 = bookService.bookMoves(token, "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1");
+        assertEquals(2, afterE4.moves().size());
+
+        var outOfBook = bookService.bookMoves(token, "4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        assertTrue(outOfBook.moves().isEmpty());
+    }
+
+    @Test
+    public void rejectsBadRequests() throws Exception {
+        String token = userService.register(new UserService.RegisterRequest("b2", "pw", "b2@b")).authToken();
+        assertThrows(IllegalArgumentException.class, () -> bookService.bookMoves(null, null));
+        assertThrows(IllegalArgumentException.class, () -> bookService.bookMoves(token, "not a fen"));
+        assertThrows(Exception.class, () -> bookService.bookMoves("bogus", null));
+    }
+}
@@ -0,0 +1,328 @@
+package chess;
+
+/**
+ * Square indexing and attack-mask helpers for the bitboard representation
+ * used by {@link ChessBoard}.
+ * <p>
+ * Squares are numbered 0..63 with a1 = 0, h1 = 7 and h8 = 63, so that
+ * {@code square = (row - 1) * 8 + (column - 1)} for a {@link ChessPosition}.
+ */
+public final class Bitboards {
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_8 = RANK_1 << 56;
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    private static final int[][] KNIGHT_OFFSETS = {
+            {2, 1}, {2, -1}, {-2, 1}, {-2, -1},
+            {1, 2}, {-1, 2}, {1, -2}, {-1, -2}
+    };
+    private static final int[][] KING_OFFSETS = {
+            {1, 1}, {1, 0}, {1, -1}, {0, 1}, {0, -1}, {-1, 1}, {-1, 0}, {-1, -1}
+    };
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {-1, 1}, {1, -1}, {-1, -1}};
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    /*
+     * Magic bitboard tables for the sliding pieces. For each square, the
+     * occupancy along its rays (edges excluded) is multiplied by a magic number
+     * and shifted down to an index into that square's slice of the shared
+     * attack table, so a slider's attack set is a single array read.
+     */
+    private static final Magic[] BISHOP_MAGICS = new Magic[64];
+    private static final Magic[] ROOK_MAGICS = new Magic[64];
+    private static final long[] BISHOP_TABLE;
+    private static final long[] ROOK_TABLE;
+
+    /*
+     * Magic multipliers found offline with a sparse-random trial search. Each one
+     * maps every relevant occupancy of its square to a distinct (or equivalent)
+     * attack set within 2^bits slots; buildMagics verifies that on load.
+     */
+    private static final long[] BISHOP_MAGIC_NUMBERS = {
+            0x0020428400408200L, 0x2008010104210004L, 0x02D0009200480190L, 0x0018158B00010100L,
+            0x02C4042132048008L, 0x020082202000C221L, 0x4000421050080009L, 0x0210140202022020L,
+            0x00C0101410042248L, 0x0405204800D48080L, 0x3800C89200420002L, 0x180844124A020440L,
+            0x04403410A8002221L, 0x4040209004200400L, 0x084004020202A204L, 0x3010002104022000L,
+            0x00200240A9110900L, 0x2302800404080210L, 0x0204188800240010L, 0x8048000C01401200L,
+            0x120C001A11040900L, 0x0000401200500440L, 0x00004040840420A0L, 0x0020930822880804L,
+            0x4044401090900161L, 0x0034100015210804L, 0x8004100009010120L, 0x48C8080000820500L,
+            0x0080848004002000L, 0x0801004012005044L, 0x000080902C040400L, 0x0004009005004100L,
+            0x0B103010048A0200L, 0x8004100203181A00L, 0x0800140200100080L, 0x8401010800910040L,
+            0x0840010011290040L, 0x40100214202E1000L, 0x0842040040010840L, 0x0028010040010860L,
+            0x00080202A2051000L, 0x4200841008084204L, 0x0021120110000D02L, 0x48C1004208000084L,
+            0x0010088100414400L, 0x0021101000420580L, 0x0010040558401410L, 0x200C0C82A1050205L,
+            0x0011108820088000L, 0x0001011910120402L, 0x1580008608091248L, 0x8010018020880C02L,
+            0x20A1101032088480L, 0x0080100408082800L, 0x28100401140401C0L, 0x8002102200930012L,
+            0x4001040082080200L, 0x082200A498081808L, 0x000508610080D003L, 0x0052020044842402L,
+            0x4800A00140C84840L, 0x5000000848080820L, 0x0101086004240040L, 0x0028280808005014L
+    };
+    private static final long[] ROOK_MAGIC_NUMBERS = {
+            0x008000908064C000L, 0x0040200040001000L, 0x0180100080A0010AL, 0x8880041000800800L,
+            0x1200100201200804L, 0x0200020004011008L, 0x2180010000800600L, 0x0200005088210204L,
+            0x0400800040008021L, 0x0400400020005000L, 0x8240801000200080L, 0x8611001004200900L,
+            0x008180800C001800L, 0x0100800200800400L, 0x0A02000102000408L, 0x8020802300104280L,
+            0x0080004000402000L, 0xE010104000402000L, 0x0800808010002000L, 0xA280210008100100L,
+            0x0001818014000800L, 0xA002010100080400L, 0x0080240001020870L, 0x0001020004048845L,
+            0x0081826280004004L, 0x2020810900284000L, 0x0200100080802000L, 0x0200080080100080L,
+            0x8083080100100500L, 0x4406000901000400L, 0x0005020080800100L, 0x0090204200008114L,
+            0x0010400094800420L, 0x0900804000802002L, 0x0201001841002000L, 0x4100080080801000L,
+            0x4540040080800800L, 0x0002001004040020L, 0x0281195814001002L, 0x1240800040800100L,
+            0x0880042000524004L, 0x02C080410206002CL, 0x0801200241050010L, 0x8400080010008080L,
+            0x0008000500090010L, 0x0082009084020008L, 0x4012000108020004L, 0x9000104D08860004L,
+            0x2004204114800100L, 0x0148802112400300L, 0x0202842000100880L, 0x001B080080900080L,
+            0x001A002008100600L, 0x0004008004020080L, 0x5181000600040300L, 0x0000044401128A00L,
+            0x8044110480002441L, 0x2008110084402202L, 0x90806005090010C1L, 0x000420310A004A42L,
+            0x0023001004020801L, 0x0882001008040102L, 0x000230088118020CL, 0x0000019025040042L
+    };
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            KNIGHT_ATTACKS[sq] = leaperMask(sq, KNIGHT_OFFSETS);
+            KING_ATTACKS[sq] = leaperMask(sq, KING_OFFSETS);
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][sq] = leaperMask(sq, new int[][]{{1, 1}, {1, -1}});
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][sq] = leaperMask(sq, new int[][]{{-1, 1}, {-1, -1}});
+        }
+        buildLines();
+        BISHOP_TABLE = buildMagics(BISHOP_MAGICS, BISHOP_MAGIC_NUMBERS, BISHOP_DIRECTIONS);
+        ROOK_TABLE = buildMagics(ROOK_MAGICS, ROOK_MAGIC_NUMBERS, ROOK_DIRECTIONS);
+    }
+
+    private record Magic(long mask, long magic, int shift, int offset) {
+        int index(long occupied) {
+            return offset + (int) (((occupied & mask) * magic) >>> shift);
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    /**
+     * @return the 0..63 square index of a 1-based row and column
+     */
+    public static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    public static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    /**
+     * @return the 1-based row of a square index
+     */
+    public static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    /**
+     * @return the 1-based column of a square index
+     */
+    public static int col(int square) {
+        return (square & 7) + 1;
+    }
+
+    public static ChessPosition position(int square) {
+        return ChessPosition.of(square);
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static boolean isOnBoard(int row, int col) {
+        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+    }
+
+    /**
+     * Index of a piece in {@link ChessBoard}'s twelve piece-sets
+     */
+    public static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * @return the squares a pawn of the given color on {@code square} captures on
+     */
+    public static long pawnAttacks(ChessGame.TeamColor color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_TABLE[BISHOP_MAGICS[square].index(occupied)];
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_TABLE[ROOK_MAGICS[square].index(occupied)];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return BISHOP_TABLE[BISHOP_MAGICS[square].index(occupied)]
+                | ROOK_TABLE[ROOK_MAGICS[square].index(occupied)];
+    }
+
+    /**
+     * @return the squares strictly between two squares that share a rank, file
+     * or diagonal, or 0 if they don't
+     */
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+
+    /**
+     * @return the whole rank, file or diagonal through two squares, edge to
+     * edge, or 0 if they don't share one
+     */
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+
+    /**
+     * Squares attacked by a piece standing on {@code square}. Pawn pushes are
+     * not attacks and are not included.
+     */
+    public static long attacks(ChessGame.TeamColor color, ChessPiece.PieceType type, int square, long occupied) {
+        return switch (type) {
+            case KING -> kingAttacks(square);
+            case QUEEN -> queenAttacks(square, occupied);
+            case BISHOP -> bishopAttacks(square, occupied);
+            case KNIGHT -> knightAttacks(square);
+            case ROOK -> rookAttacks(square, occupied);
+            case PAWN -> pawnAttacks(color, square);
+        };
+    }
+
+    private static long leaperMask(int square, int[][] offsets) {
+        long mask = 0L;
+        int row = row(square);
+        int col = col(square);
+        for (int[] offset : offsets) {
+            int r = row + offset[0];
+            int c = col + offset[1];
+            if (isOnBoard(r, c)) {
+                mask |= bit(square(r, c));
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Walks each ray until it leaves the board or hits an occupied square,
+     * which is included in the result.
+     */
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long mask = 0L;
+        int row = row(square);
+        int col = col(square);
+        for (int[] dir : directions) {
+            int r = row + dir[0];
+            int c = col + dir[1];
+            while (isOnBoard(r, c)) {
+                long b = bit(square(r, c));
+                mask |= b;
+                if ((occupied & b) != 0) {
+                    break;
+                }
+                r += dir[0];
+                c += dir[1];
+            }
+        }
+        return mask;
+    }
+
+    private static void buildLines() {
+        int[][] directions = {{1, 1}, {-1, 1}, {1, -1}, {-1, -1}, {1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+        for (int a = 0; a < 64; a++) {
+            for (int[] dir : directions) {
+                // The full line is this ray, the opposite ray and the square itself
+                long fullLine = bit(a) | ray(a, dir[0], dir[1]) | ray(a, -dir[0], -dir[1]);
+                long between = 0L;
+                int r = row(a) + dir[0];
+                int c = col(a) + dir[1];
+                while (isOnBoard(r, c)) {
+                    int b = square(r, c);
+                    BETWEEN[a][b] = between;
+                    LINE[a][b] = fullLine;
+                    between |= bit(b);
+                    r += dir[0];
+                    c += dir[1];
+                }
+            }
+        }
+    }
+
+    private static long ray(int square, int dRow, int dCol) {
+        long mask = 0L;
+        int r = row(square) + dRow;
+        int c = col(square) + dCol;
+        while (isOnBoard(r, c)) {
+            mask |= bit(square(r, c));
+            r += dRow;
+            c += dCol;
+        }
+        return mask;
+    }
+
+    /**
+     * Squares whose occupancy can change a slider's attack set from
+     * {@code square}: every ray square except the last one before the edge.
+     */
+    private static long relevantOccupancy(int square, int[][] directions) {
+        long mask = 0L;
+        int row = row(square);
+        int col = col(square);
+        for (int[] dir : directions) {
+            int r = row + dir[0];
+            int c = col + dir[1];
+            while (isOnBoard(r + dir[0], c + dir[1])) {
+                mask |= bit(square(r, c));
+                r += dir[0];
+                c += dir[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long[] buildMagics(Magic[] magics, long[] magicNumbers, int[][] directions) {
+        int size = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            long mask = relevantOccupancy(sq, directions);
+            magics[sq] = new Magic(mask, magicNumbers[sq], 64 - Long.bitCount(mask), size);
+            size += 1 << Long.bitCount(mask);
+        }
+
+        long[] table = new long[size];
+        boolean[] filled = new boolean[size];
+        for (int sq = 0; sq < 64; sq++) {
+            Magic magic = magics[sq];
+            // Carry-rippler enumeration of every subset of the mask
+            long subset = 0L;
+            do {
+                long attacks = slidingAttacks(sq, subset, directions);
+                int idx = magic.index(subset);
+                if (filled[idx] && table[idx] != attacks) {
+                    throw new IllegalStateException("Bad magic number for square " + sq);
+                }
+                filled[idx] = true;
+                table[idx] = attacks;
+                subset = (subset - magic.mask()) & magic.mask();
+            } while (subset != 0);
+        }
+        return table;
+    }
+}
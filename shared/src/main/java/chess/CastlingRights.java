@@ -0,0 +1,98 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Castling rights as a 4-bit set. A right is lost for good once its king or
+ * rook leaves (or is captured on) its home square, which {@link #afterMove}
+ * tracks with one table lookup per square.
+ */
+public final class CastlingRights {
+
+    public static final int NONE = 0;
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL = 15;
+
+    static final int WHITE_KING_HOME = 4;
+    static final int BLACK_KING_HOME = 60;
+
+    /** The rights that survive something moving from or to each square */
+    private static final int[] KEPT = new int[64];
+
+    static {
+        Arrays.fill(KEPT, ALL);
+        KEPT[0] &= ~WHITE_QUEENSIDE;
+        KEPT[7] &= ~WHITE_KINGSIDE;
+        KEPT[WHITE_KING_HOME] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        KEPT[56] &= ~BLACK_QUEENSIDE;
+        KEPT[63] &= ~BLACK_KINGSIDE;
+        KEPT[BLACK_KING_HOME] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+    }
+
+    private CastlingRights() {
+    }
+
+    public static int afterMove(int rights, int from, int to) {
+        return rights & KEPT[from] & KEPT[to];
+    }
+
+    /**
+     * @return the rights of each king and rook still standing on their home
+     * squares, for boards set up without a move history
+     */
+    public static int infer(ChessBoard board) {
+        int rights = NONE;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            int king = kingHome(color);
+            if (!ChessPiece.of(color, ChessPiece.PieceType.KING).equals(board.getPiece(king))) {
+                continue;
+            }
+            ChessPiece rook = ChessPiece.of(color, ChessPiece.PieceType.ROOK);
+            if (rook.equals(board.getPiece(king + 3))) {
+                rights |= kingside(color);
+            }
+            if (rook.equals(board.getPiece(king - 4))) {
+                rights |= queenside(color);
+            }
+        }
+        return rights;
+    }
+
+    public static int kingside(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+    }
+
+    public static int queenside(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+    }
+
+    static int kingHome(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? WHITE_KING_HOME : BLACK_KING_HOME;
+    }
+
+    /**
+     * @return the rights in FEN form, such as "KQkq", or "-" for none
+     */
+    public static String toString(int rights) {
+        if (rights == NONE) {
+            return "-";
+        }
+        StringBuilder sb = new StringBuilder(4);
+        if ((rights & WHITE_KINGSIDE) != 0) {
+            sb.append('K');
+        }
+        if ((rights & WHITE_QUEENSIDE) != 0) {
+            sb.append('Q');
+        }
+        if ((rights & BLACK_KINGSIDE) != 0) {
+            sb.append('k');
+        }
+        if ((rights & BLACK_QUEENSIDE) != 0) {
+            sb.append('q');
+        }
+        return sb.toString();
+    }
+}
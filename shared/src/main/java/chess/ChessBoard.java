@@ -1,7 +1,6 @@
 package chess;
 
 import java.util.Arrays;
-import java.util.Objects;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
@@ -11,7 +10,21 @@ import java.util.Objects;
  */
 public class ChessBoard {
 
+    /*
+     * The cell array is the serialized form of the board (Gson reflects over it).
+     * The twelve piece-sets, the occupancy masks and the Zobrist key are a
+     * transient index kept in step with it by addPiece. indexedCells remembers
+     * which array the index was built from, so a board whose cells were replaced
+     * by reflection is re-indexed on first use.
+     */
     final private ChessPiece[][] board = new ChessPiece[9][9];
+    private transient final long[] pieceSets = new long[12];
+    private transient final long[] teamSets = new long[2];
+    private transient long occupied;
+    private transient long key;
+    private transient ChessPiece[][] indexedCells = board;
+    private transient int edits;
+
     public ChessBoard() {
         
     }
@@ -23,7 +36,36 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        board[position.getRow()][position.getColumn()] = piece;
+        addPiece(Bitboards.square(position), piece);
+    }
+
+    /**
+     * Adds a chess piece to the chessboard, replacing whatever stood there
+     *
+     * @param square 0..63 square index, see {@link Bitboards#square(int, int)}
+     * @param piece  the piece to add, or null to empty the square
+     */
+    public void addPiece(int square, ChessPiece piece) {
+        edits++;
+        place(square, piece);
+    }
+
+    /**
+     * addPiece without counting an edit, for {@link ChessGame}'s own moves,
+     * which publish their result themselves
+     */
+    void place(int square, ChessPiece piece) {
+        ensureIndexed();
+        ChessPiece[] rank = board[Bitboards.row(square)];
+        int col = Bitboards.col(square);
+        ChessPiece previous = rank[col];
+        if (previous != null) {
+            unindex(square, previous);
+        }
+        rank[col] = piece;
+        if (piece != null) {
+            index(square, piece);
+        }
     }
 
     /**
@@ -37,18 +79,201 @@ public class ChessBoard {
         return board[position.getRow()][position.getColumn()];
     }
 
+    /**
+     * @param square 0..63 square index, see {@link Bitboards#square(int, int)}
+     * @return Either the piece on the square, or null if it is empty
+     */
+    public ChessPiece getPiece(int square) {
+        return board[Bitboards.row(square)][Bitboards.col(square)];
+    }
+
+    /**
+     * @return bitboard of every square holding the given piece
+     */
+    public long getPieceSet(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        ensureIndexed();
+        return pieceSets[Bitboards.pieceIndex(color, type)];
+    }
+
+    /**
+     * @return bitboard of every square holding a piece of the given team
+     */
+    public long getTeamOccupancy(ChessGame.TeamColor color) {
+        ensureIndexed();
+        return teamSets[color.ordinal()];
+    }
+
+    /**
+     * @return bitboard of every occupied square
+     */
+    public long getOccupancy() {
+        ensureIndexed();
+        return occupied;
+    }
+
+    /**
+     * @return 64-bit Zobrist key of the pieces on this board, maintained
+     * incrementally by addPiece. Boards with the same pieces on the same
+     * squares always share a key.
+     */
+    public long positionKey() {
+        ensureIndexed();
+        return key;
+    }
+
+    /**
+     * Finds a team's king. The king piece-set is kept current by addPiece, so
+     * this is a bit scan rather than a board search. If a test position holds
+     * several kings, the lowest square (row-major from a1) wins.
+     *
+     * @return the king's 0..63 square index, or -1 if the team has no king
+     */
+    public int getKingSquare(ChessGame.TeamColor color) {
+        long kings = getPieceSet(color, ChessPiece.PieceType.KING);
+        return kings == 0 ? -1 : Long.numberOfTrailingZeros(kings);
+    }
+
+    /**
+     * Determines whether any piece of the attacking team hits a square. Works
+     * backwards from the target: slider rays, knight jumps, king steps and pawn
+     * diagonals are cast from the square and intersected with the attacker's
+     * pieces, stopping at the first kind that matches.
+     *
+     * @param square   0..63 square index to test
+     * @param attacker the team whose attacks are of interest
+     * @return True if the square is attacked by the given team
+     */
+    public boolean isSquareAttacked(int square, ChessGame.TeamColor attacker) {
+        return isSquareAttacked(square, attacker, getOccupancy());
+    }
+
+    /**
+     * As {@link #isSquareAttacked(int, ChessGame.TeamColor)}, but with slider
+     * rays blocked by the given occupancy rather than the board's, so callers
+     * can ask about a square with pieces hypothetically lifted off.
+     */
+    public boolean isSquareAttacked(int square, ChessGame.TeamColor attacker, long occupancy) {
+        ensureIndexed();
+        int base = attacker.ordinal() * 6;
+        long queens = pieceSets[base + ChessPiece.PieceType.QUEEN.ordinal()];
+        if ((Bitboards.pawnAttacks(ChessGame.opponentOf(attacker), square)
+                & pieceSets[base + ChessPiece.PieceType.PAWN.ordinal()]) != 0) {
+            return true;
+        }
+        if ((Bitboards.knightAttacks(square) & pieceSets[base + ChessPiece.PieceType.KNIGHT.ordinal()]) != 0) {
+            return true;
+        }
+        if ((Bitboards.kingAttacks(square) & pieceSets[base + ChessPiece.PieceType.KING.ordinal()]) != 0) {
+            return true;
+        }
+        if ((Bitboards.bishopAttacks(square, occupancy)
+                & (pieceSets[base + ChessPiece.PieceType.BISHOP.ordinal()] | queens)) != 0) {
+            return true;
+        }
+        return (Bitboards.rookAttacks(square, occupancy)
+                & (pieceSets[base + ChessPiece.PieceType.ROOK.ordinal()] | queens)) != 0;
+    }
+
+    /**
+     * Every square the given team attacks, whether empty, enemy or defended
+     * own piece. Pawn pushes are not attacks and are not included.
+     *
+     * @param attacker the team whose attacks are of interest
+     * @return bit set of attacked squares, bit n for square n
+     */
+    public long attackedSquares(ChessGame.TeamColor attacker) {
+        ensureIndexed();
+        long occupancy = getOccupancy();
+        long attacked = 0L;
+        for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+            for (long pieces = pieceSets[Bitboards.pieceIndex(attacker, type)]; pieces != 0; pieces &= pieces - 1) {
+                attacked |= Bitboards.attacks(attacker, type, Long.numberOfTrailingZeros(pieces), occupancy);
+            }
+        }
+        return attacked;
+    }
+
+    /**
+     * @return bitboard of every piece of the attacking team that attacks the square
+     */
+    public long getAttackers(int square, ChessGame.TeamColor attacker) {
+        ensureIndexed();
+        int base = attacker.ordinal() * 6;
+        long queens = pieceSets[base + ChessPiece.PieceType.QUEEN.ordinal()];
+        return (Bitboards.pawnAttacks(ChessGame.opponentOf(attacker), square)
+                        & pieceSets[base + ChessPiece.PieceType.PAWN.ordinal()])
+                | (Bitboards.knightAttacks(square) & pieceSets[base + ChessPiece.PieceType.KNIGHT.ordinal()])
+                | (Bitboards.kingAttacks(square) & pieceSets[base + ChessPiece.PieceType.KING.ordinal()])
+                | (Bitboards.bishopAttacks(square, occupied)
+                        & (pieceSets[base + ChessPiece.PieceType.BISHOP.ordinal()] | queens))
+                | (Bitboards.rookAttacks(square, occupied)
+                        & (pieceSets[base + ChessPiece.PieceType.ROOK.ordinal()] | queens));
+    }
+
+    /**
+     * @return how many times addPiece has changed the board, so a game can
+     * tell when edits made through getBoard() have outdated its snapshot
+     */
+    int edits() {
+        return edits;
+    }
+
+    private void index(int square, ChessPiece piece) {
+        long bit = Bitboards.bit(square);
+        pieceSets[Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType())] |= bit;
+        teamSets[piece.getTeamColor().ordinal()] |= bit;
+        occupied |= bit;
+        key ^= Zobrist.pieceKey(piece, square);
+    }
+
+    private void unindex(int square, ChessPiece piece) {
+        long bit = ~Bitboards.bit(square);
+        pieceSets[Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType())] &= bit;
+        teamSets[piece.getTeamColor().ordinal()] &= bit;
+        occupied &= bit;
+        key ^= Zobrist.pieceKey(piece, square);
+    }
+
+    private void ensureIndexed() {
+        if (indexedCells != board) {
+            reindex();
+        }
+    }
+
+    /**
+     * Rebuilds the bitboards and key from the cell array, swapping each cell's
+     * piece for its canonical {@link ChessPiece#of} instance along the way.
+     * Deserializers call this after filling in cells.
+     */
+    void reindex() {
+        Arrays.fill(pieceSets, 0L);
+        Arrays.fill(teamSets, 0L);
+        occupied = 0L;
+        key = 0L;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = ChessPiece.canonical(getPiece(square));
+            if (piece != null) {
+                board[Bitboards.row(square)][Bitboards.col(square)] = piece;
+                index(square, piece);
+            }
+        }
+        indexedCells = board;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(board, that.board);
+        ensureIndexed();
+        that.ensureIndexed();
+        return Arrays.equals(pieceSets, that.pieceSets);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        return Zobrist.fold(positionKey());
     }
 
     /**
@@ -61,38 +286,56 @@ public class ChessBoard {
                 board[i][j] = null;
             }
         }
+        reindex();
 
         //add Pawns
         for (int i = 1; i <= 8; i++) {
-            addPiece(new ChessPosition(2, i), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-            addPiece(new ChessPosition(7, i), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(2, i), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(7, i), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
         }
 
         //add Rooks
-        addPiece(new ChessPosition(1,1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(1, 8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(1,1), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(1, 8), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(8, 1), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(8, 8), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
 
         //add Knights
-        addPiece(new ChessPosition(1,2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(1,7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8,2), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8,7), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(1,2), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(1,7), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(8,2), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(8,7), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
 
         //add Bishops
-        addPiece(new ChessPosition(1,3), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(1,6), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8,3), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8,6), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(1,3), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(1,6), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(8,3), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(8,6), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
 
         //add Queens
-        addPiece(new ChessPosition(1, 4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(8, 4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        addPiece(ChessPosition.of(1, 4), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        addPiece(ChessPosition.of(8, 4), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
 
         //add Kings
-        addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        addPiece(ChessPosition.of(1, 5), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        addPiece(ChessPosition.of(8, 5), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+    }
+
+    /**
+     * @return the piece placement field of a FEN, such as
+     * {@code rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR}
+     */
+    public String toFen() {
+        return Fen.placement(this);
+    }
+
+    /**
+     * Builds a board from the piece placement field of a FEN
+     *
+     * @throws IllegalArgumentException if the placement is malformed
+     */
+    public static ChessBoard fromFen(String placement) {
+        return Fen.parsePlacement(placement);
     }
 
     @Override
@@ -1,6 +1,7 @@
 package chess;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Objects;
 
@@ -13,6 +14,17 @@ public class ChessGame {
 
     private TeamColor teamTurn = TeamColor.WHITE;
     private ChessBoard board;
+    private int castlingRights = CastlingRights.ALL;
+    private int enPassantSquare = -1;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    private transient final UndoStack history = new UndoStack();
+    private transient final PositionHistory positions = new PositionHistory();
+    private transient final MoveList scratch = new MoveList();
+    private transient final GameStatus[] statusCache = new GameStatus[TeamColor.values().length];
+    private transient long statusKey;
+    private transient final LegalMoveIndex[] legalMoveIndex = {new LegalMoveIndex(), new LegalMoveIndex()};
+    private transient volatile PositionSnapshot published;
 
     public ChessGame() {
         board = new ChessBoard();
@@ -30,7 +42,75 @@ public class ChessGame {
 
     @Override
     public int hashCode() {
-        return Objects.hash(teamTurn, board);
+        // Only what equals compares; castling and en passant state stay out
+        return Zobrist.fold(board.positionKey() ^ Zobrist.sideKey(teamTurn));
+    }
+
+    /**
+     * @return 64-bit Zobrist key of this position: the board's key combined
+     * with the side to move, castling rights and any en passant capture.
+     * Suitable for transposition tables and repetition detection; equal
+     * positions always share a key.
+     */
+    public long positionKey() {
+        return board.positionKey() ^ Zobrist.sideKey(teamTurn)
+                ^ Zobrist.castlingKey(castlingRights) ^ Zobrist.enPassantKey(enPassantSquare);
+    }
+
+    /**
+     * @return the castling rights still held, as a {@link CastlingRights} bit
+     * set. A right only means the king and rook haven't moved; whether the
+     * castle is currently playable is up to validMoves.
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * @return the square a pawn of the side to move can capture onto en
+     * passant, or null if there is none
+     */
+    public ChessPosition getEnPassantPosition() {
+        return enPassantSquare < 0 ? null : Bitboards.position(enPassantSquare);
+    }
+
+    /**
+     * @return the number of moves since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * @return the number of the current full move, starting at 1 and going up
+     * after each black move
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * @return true once fifty moves by each side have passed without a capture
+     * or pawn move, so that either player may claim a draw
+     */
+    public boolean isFiftyMoveDraw() {
+        return halfmoveClock >= 100;
+    }
+
+    /**
+     * @return how many times the current position has occurred, counting this
+     * one, since the last capture or pawn move
+     */
+    public int getRepetitionCount() {
+        return 1 + positions.occurrences(positionKey(), halfmoveClock);
+    }
+
+    /**
+     * @return true if the current position has occurred three times, so that
+     * either player may claim a draw
+     */
+    public boolean isThreefoldRepetition() {
+        return getRepetitionCount() >= 3;
     }
 
     /**
@@ -47,6 +127,8 @@ public class ChessGame {
      */
     public void setTeamTurn(TeamColor team) {
         teamTurn = team;
+        invalidateLegalMoves();
+        publishSnapshot();
     }
 
     /**
@@ -57,6 +139,52 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Where a team stands in the current position
+     */
+    public enum GameStatus {
+        ONGOING,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
+    }
+
+    /**
+     * @return the status of the side to move
+     */
+    public GameStatus status() {
+        return status(teamTurn);
+    }
+
+    /**
+     * Works out whether a team is in check, checkmated or stalemated with one
+     * check test and at most one legal move pass. The answer is kept until the
+     * position changes, so asking about both teams, or asking again, is cheap.
+     *
+     * @param teamColor which team to report on
+     * @return the team's status in the current position
+     */
+    public GameStatus status(TeamColor teamColor) {
+        long key = positionKey();
+        if (key != statusKey) {
+            // Keyed on the position rather than cleared by each mutator, since
+            // tests edit the board directly through getBoard()
+            Arrays.fill(statusCache, null);
+            statusKey = key;
+        }
+        GameStatus status = statusCache[teamColor.ordinal()];
+        if (status == null) {
+            boolean inCheck = isInCheck(teamColor);
+            if (hasValidMove(teamColor)) {
+                status = inCheck ? GameStatus.CHECK : GameStatus.ONGOING;
+            } else {
+                status = inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+            }
+            statusCache[teamColor.ordinal()] = status;
+        }
+        return status;
+    }
+
     /**
      * Gets valid moves for a piece at the given location
      *
@@ -64,35 +192,149 @@ public class ChessGame {
      * @return Set of valid moves for requested piece, or null if no piece at startPosition
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
-        ChessPiece piece = board.getPiece(startPosition);
-        if (piece == null) {
+        if (board.getPiece(startPosition) == null) {
             return null;
         }
 
-        Collection<ChessMove> possibleMoves = piece.pieceMoves(board, startPosition);
-        Collection<ChessMove> validMoves = new ArrayList<>();
-
-        for (ChessMove move : possibleMoves) {
-            if (movePreservesCheckSafety(piece, move)) {
-                validMoves.add(move);
-            }
+        int from = Bitboards.square(startPosition);
+        LegalMoveIndex index = legalMoveIndex(board.getPiece(from).getTeamColor());
+        Collection<ChessMove> validMoves = new ArrayList<>(index.end(from) - index.begin(from));
+        for (int i = index.begin(from); i < index.end(from); i++) {
+            validMoves.add(Move.toChessMove(index.get(i)));
         }
         return validMoves;
     }
 
-    private boolean movePreservesCheckSafety(ChessPiece piece, ChessMove move) {
-        ChessPosition start = move.getStartPosition();
-        ChessPosition end = move.getEndPosition();
-        ChessPiece capturedPiece = board.getPiece(end);
+    /**
+     * Gets the squares the piece on a square can legally move to, as a bit
+     * set, without building any moves
+     *
+     * @param from 0..63 square of the piece to move
+     * @return bit n set if square n is a valid destination; 0 if the square is
+     * empty or the piece cannot move
+     */
+    public long legalTargets(int from) {
+        ChessPiece piece = board.getPiece(from);
+        if (piece == null) {
+            return 0L;
+        }
+        return legalMoveIndex(piece.getTeamColor()).targets(from);
+    }
+
+    public long legalTargets(ChessPosition startPosition) {
+        return legalTargets(Bitboards.square(startPosition));
+    }
+
+    /**
+     * @return every square the team attacks, bit n for square n, for threat
+     * overlays and similar displays
+     */
+    public long attackMap(TeamColor teamColor) {
+        return board.attackedSquares(teamColor);
+    }
+
+    /**
+     * Appends the valid moves of the piece on a square, in packed {@link Move}
+     * form, without allocating
+     *
+     * @param from  0..63 square of the piece to move; nothing is added if it is empty
+     * @param moves list to append to
+     */
+    public void generateValidMoves(int from, MoveList moves) {
+        ChessPiece piece = board.getPiece(from);
+        if (piece == null) {
+            return;
+        }
+        generateValidMoves(piece.getTeamColor(), Bitboards.bit(from), moves);
+    }
+
+    /**
+     * Appends the valid moves of every piece of a team, in packed {@link Move}
+     * form, without allocating
+     *
+     * @param teamColor the team to generate moves for
+     * @param moves     list to append to
+     */
+    public void generateValidMoves(TeamColor teamColor, MoveList moves) {
+        generateValidMoves(teamColor, ~0L, moves);
+    }
+
+    private void generateValidMoves(TeamColor teamColor, long fromMask, MoveList moves) {
+        long kings = board.getPieceSet(teamColor, ChessPiece.PieceType.KING);
+        if (Long.bitCount(kings) == 1) {
+            int enPassant = teamColor == teamTurn ? enPassantSquare : -1;
+            MoveGenerator.addLegalMoves(board, teamColor, fromMask, castlingRights, enPassant, moves);
+            return;
+        }
+
+        // Kingless or multi-king boards only come from tests and setups; a
+        // kingless team can never be in check, and with several kings each
+        // move is tried on the board instead. Neither can castle, and en
+        // passant is left out of these positions.
+        int start = moves.size();
+        for (long pieces = board.getTeamOccupancy(teamColor) & fromMask; pieces != 0; pieces &= pieces - 1) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            MoveGenerator.addPieceMoves(board, teamColor, board.getPiece(from).getPieceType(), from, moves);
+        }
+        if (kings != 0) {
+            retainSafeMoves(teamColor, moves, start);
+        }
+    }
+
+    /**
+     * @return every legal move for the side to move
+     */
+    public Collection<ChessMove> legalMoves() {
+        MoveList moves = new MoveList();
+        generateValidMoves(teamTurn, moves);
+        Collection<ChessMove> legalMoves = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            legalMoves.add(Move.toChessMove(moves.get(i)));
+        }
+        return legalMoves;
+    }
+
+    /**
+     * Compacts moves[start..] down to the moves that don't leave the mover in check
+     */
+    private void retainSafeMoves(TeamColor teamColor, MoveList moves, int start) {
+        int kept = start;
+        for (int i = start; i < moves.size(); i++) {
+            int move = moves.get(i);
+            makeMoveUnchecked(move);
+            boolean safe = !isInCheck(teamColor);
+            unmakeMove();
+            if (safe) {
+                moves.set(kept++, move);
+            }
+        }
+        moves.truncate(kept);
+    }
 
-        board.addPiece(end, piece);
-        board.addPiece(start, null);
+    private boolean hasValidMove(TeamColor teamColor) {
+        return legalMoveIndex(teamColor).size() > 0;
+    }
 
-        boolean safe = !isInCheck(piece.getTeamColor());
+    /**
+     * @return the team's legal moves in the current position, generated once
+     * and then reused until the position changes
+     */
+    private LegalMoveIndex legalMoveIndex(TeamColor teamColor) {
+        LegalMoveIndex index = legalMoveIndex[teamColor.ordinal()];
+        // The key check also catches edits made directly through getBoard()
+        long key = positionKey();
+        if (!index.isCurrent(key)) {
+            scratch.clear();
+            generateValidMoves(teamColor, scratch);
+            index.build(scratch, key);
+        }
+        return index;
+    }
 
-        board.addPiece(end, capturedPiece);
-        board.addPiece(start, piece);
-        return safe;
+    private void invalidateLegalMoves() {
+        for (LegalMoveIndex index : legalMoveIndex) {
+            index.invalidate();
+        }
     }
 
     /**
@@ -102,21 +344,16 @@ public class ChessGame {
      * @throws InvalidMoveException if move is invalid
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
-        boolean moveIsInBoard = false;
-        Collection<ChessMove> validMoves = validMoves(move.getStartPosition());
-        if (validMoves != null) {
-            for (ChessMove validMove : validMoves) {
-                if (validMove.equals(move)) {
-                    moveIsInBoard = true;
-                    break;
-                }
-            }
+        if (!isOnBoard(move.getStartPosition()) || !isOnBoard(move.getEndPosition())) {
+            throw new InvalidMoveException("Invalid move. Position is off the board");
         }
-
+        int packed = Move.encode(move);
         ChessPiece piece = board.getPiece(move.getStartPosition());
+        boolean moveIsInBoard = piece != null && legalMoveIndex(piece.getTeamColor()).contains(packed);
+
         if (moveIsInBoard && piece.getTeamColor() == teamTurn) {
-            executeMove(move, piece);
-            toggleTeamTurn(piece.getTeamColor());
+            makeMoveUnchecked(packed);
+            publishSnapshot();
         } else {
             if (!moveIsInBoard) {
                 throw new InvalidMoveException("Invalid move. Move not in valid moves");
@@ -126,139 +363,187 @@ public class ChessGame {
         }
     }
 
-    private void executeMove(ChessMove move, ChessPiece piece) {
-        ChessPosition startPosition = move.getStartPosition();
-        ChessPosition endPosition = move.getEndPosition();
+    /**
+     * Plays a move without checking that it is legal, recording what is needed
+     * to take it back with {@link #unmakeMove()}. The turn passes to the
+     * opponent of the moving piece. Intended for moves that already came out
+     * of a move generator, such as during legality filtering or search.
+     *
+     * @param move a move whose start square holds a piece
+     */
+    public void makeMoveUnchecked(ChessMove move) {
+        makeMoveUnchecked(Move.encode(move));
+    }
 
-        if (move.getPromotionPiece() == null) {
-            board.addPiece(endPosition, piece);
-        } else {
-            board.addPiece(endPosition, new ChessPiece(piece.getTeamColor(), move.getPromotionPiece()));
+    /**
+     * As {@link #makeMoveUnchecked(ChessMove)}, for a packed {@link Move}
+     */
+    public void makeMoveUnchecked(int move) {
+        int to = Move.to(move);
+        ChessPiece piece = board.getPiece(Move.from(move));
+        ChessPiece captured = isEnPassant(piece, to)
+                ? board.getPiece(MoveGenerator.enPassantCaptureSquare(piece.getTeamColor(), to))
+                : board.getPiece(to);
+        positions.push(positionKey());
+        history.push(move, piece, captured, teamTurn, castlingRights, enPassantSquare, halfmoveClock);
+        executeMove(move, piece);
+        if (piece.getTeamColor() == TeamColor.BLACK) {
+            fullmoveNumber++;
         }
-        board.addPiece(startPosition, null);
+        toggleTeamTurn(piece.getTeamColor());
     }
 
-    private void toggleTeamTurn(TeamColor currentTeam) {
-        if (currentTeam == TeamColor.WHITE) {
-            setTeamTurn(TeamColor.BLACK);
-        } else {
-            setTeamTurn(TeamColor.WHITE);
+    /**
+     * Takes back the most recent move made on this game
+     *
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void unmakeMove() {
+        int slot = history.pop();
+        positions.pop();
+        int move = history.moves[slot];
+        int from = Move.from(move);
+        int to = Move.to(move);
+        ChessPiece moved = history.moved[slot];
+        teamTurn = history.priorTurn[slot];
+        castlingRights = history.priorCastlingRights[slot];
+        enPassantSquare = history.priorEnPassantSquare[slot];
+        halfmoveClock = history.priorHalfmoveClock[slot];
+        if (moved.getTeamColor() == TeamColor.BLACK) {
+            fullmoveNumber--;
         }
-    }
 
-    public ChessPosition findPosition(ChessPiece piece) {
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                ChessPosition position = new ChessPosition(i, j);
-                ChessPiece current = board.getPiece(position);
-                if (current != null && current.equals(piece)) {
-                    return position;
-                }
+        board.place(from, moved);
+        if (isEnPassant(moved, to)) {
+            board.place(to, null);
+            board.place(MoveGenerator.enPassantCaptureSquare(moved.getTeamColor(), to), history.captured[slot]);
+        } else {
+            board.place(to, history.captured[slot]);
+            if (isCastle(moved, from, to)) {
+                int rookHome = castlingRookHome(from, to);
+                int rookSquare = (from + to) / 2;
+                board.place(rookHome, board.getPiece(rookSquare));
+                board.place(rookSquare, null);
             }
         }
-        return null;
+        invalidateLegalMoves();
     }
 
     /**
-     * Determines if the given team is in check
-     *
-     * @param teamColor which team to check for check
-     * @return True if the specified team is in check
+     * @return how many moves can currently be taken back with unmakeMove
      */
-    public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPosition = findPosition(new ChessPiece(teamColor, ChessPiece.PieceType.KING));
-        if (kingPosition == null) {
-            return false;
+    public int getUndoDepth() {
+        return history.size;
+    }
+
+    private static boolean isOnBoard(ChessPosition position) {
+        return position != null && Bitboards.isOnBoard(position.getRow(), position.getColumn());
+    }
+
+    private void executeMove(int move, ChessPiece piece) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        TeamColor color = piece.getTeamColor();
+        boolean pawnMove = piece.getPieceType() == ChessPiece.PieceType.PAWN;
+        boolean capture = board.getPiece(to) != null;
+
+        if (isEnPassant(piece, to)) {
+            board.place(MoveGenerator.enPassantCaptureSquare(color, to), null);
+            capture = true;
+        } else if (isCastle(piece, from, to)) {
+            // The rook jumps to the square the king passed over
+            int rookHome = castlingRookHome(from, to);
+            board.place((from + to) / 2, board.getPiece(rookHome));
+            board.place(rookHome, null);
         }
 
-        for (int i = 1; i <= 8; i++) {
-            if (isRowThreateningKing(i, teamColor, kingPosition)) {
-                return true;
+        ChessPiece.PieceType promotion = Move.promotion(move);
+        if (promotion == null) {
+            board.place(to, piece);
+        } else {
+            board.place(to, ChessPiece.of(color, promotion));
+        }
+        board.place(from, null);
+
+        castlingRights = CastlingRights.afterMove(castlingRights, from, to);
+        halfmoveClock = (pawnMove || capture) ? 0 : halfmoveClock + 1;
+        enPassantSquare = -1;
+        if (pawnMove && Math.abs(to - from) == 16) {
+            int skipped = (from + to) / 2;
+            // Only recorded when an enemy pawn could take it, so that otherwise
+            // identical positions share a key for repetition
+            if ((Bitboards.pawnAttacks(color, skipped)
+                    & board.getPieceSet(opponentOf(color), ChessPiece.PieceType.PAWN)) != 0) {
+                enPassantSquare = skipped;
             }
         }
-        return false;
     }
 
-    private boolean isRowThreateningKing(int row, TeamColor teamColor, ChessPosition kingPosition) {
-        for (int col = 1; col <= 8; col++) {
-            ChessPosition pos = new ChessPosition(row, col);
-            ChessPiece piece = board.getPiece(pos);
-            if (piece == null || piece.getTeamColor() == teamColor) {
-                continue;
-            }
+    private boolean isEnPassant(ChessPiece piece, int to) {
+        return to == enPassantSquare && piece.getPieceType() == ChessPiece.PieceType.PAWN;
+    }
 
-            if (canPieceAttackKing(piece, pos, kingPosition)) {
-                return true;
-            }
-        }
-        return false;
+    private static boolean isCastle(ChessPiece piece, int from, int to) {
+        return piece.getPieceType() == ChessPiece.PieceType.KING && Math.abs(to - from) == 2;
     }
 
-    private boolean canPieceAttackKing(ChessPiece piece, ChessPosition pos, ChessPosition kingPos) {
-        for (ChessMove move : piece.pieceMoves(board, pos)) {
-            if (move.getEndPosition().equals(kingPos)) {
-                return true;
-            }
+    private static int castlingRookHome(int kingFrom, int kingTo) {
+        return kingTo > kingFrom ? kingFrom + 3 : kingFrom - 4;
+    }
+
+    private void toggleTeamTurn(TeamColor currentTeam) {
+        // Not setTeamTurn: search makes and unmakes moves far too often to
+        // publish a snapshot for each
+        teamTurn = currentTeam == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        invalidateLegalMoves();
+    }
+
+    public ChessPosition findPosition(ChessPiece piece) {
+        long pieces = board.getPieceSet(piece.getTeamColor(), piece.getPieceType());
+        if (pieces == 0) {
+            return null;
         }
-        return false;
+        return Bitboards.position(Long.numberOfTrailingZeros(pieces));
     }
 
     /**
-     * Determines if the given team is in checkmate
+     * Looks up a team's king without searching the board
      *
-     * @param teamColor which team to check for checkmate
-     * @return True if the specified team is in checkmate
+     * @param teamColor which team's king to find
+     * @return the king's position, or null if that team has no king
      */
-    public boolean isInCheckmate(TeamColor teamColor) {
-        ChessPiece king = new ChessPiece(teamColor, ChessPiece.PieceType.KING);
-        ChessPosition kingPosition = findPosition(king);
+    public ChessPosition getKingPosition(TeamColor teamColor) {
+        int square = board.getKingSquare(teamColor);
+        return square < 0 ? null : Bitboards.position(square);
+    }
 
-        if (!isInCheck(teamColor)) {
+    /**
+     * Determines if the given team is in check
+     *
+     * @param teamColor which team to check for check
+     * @return True if the specified team is in check
+     */
+    public boolean isInCheck(TeamColor teamColor) {
+        int kingSquare = board.getKingSquare(teamColor);
+        if (kingSquare < 0) {
             return false;
         }
 
-        for (int i = 1; i <= 8; i++) {
-            if (!rowLeadsToCheckmate(i, teamColor)) {
-                return false;
-            }
-        }
-
-        return true;
+        return board.isSquareAttacked(kingSquare, opponentOf(teamColor));
     }
 
-    private boolean rowLeadsToCheckmate(int row, TeamColor teamColor) {
-        for (int col = 1; col <= 8; col++) {
-            ChessPosition pos = new ChessPosition(row, col);
-            ChessPiece piece = board.getPiece(pos);
-
-            if (piece == null || piece.getTeamColor() != teamColor) {
-                continue;
-            }
-            if (pieceCanPreventCheck(teamColor, piece, pos)) {
-                return false;
-            }
-        }
-        return true;
+    static TeamColor opponentOf(TeamColor teamColor) {
+        return teamColor == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
     }
 
-    private boolean pieceCanPreventCheck(TeamColor teamColor, ChessPiece piece, ChessPosition pos) {
-        for (ChessMove move : piece.pieceMoves(board, pos)) {
-            ChessPosition end = move.getEndPosition();
-            ChessPiece captured = board.getPiece(end);
-
-            board.addPiece(end, piece);
-            board.addPiece(pos, null);
-
-            boolean stillInCheck = isInCheck(teamColor);
-
-            board.addPiece(end, captured);
-            board.addPiece(pos, piece);
-
-            if (!stillInCheck) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * Determines if the given team is in checkmate
+     *
+     * @param teamColor which team to check for checkmate
+     * @return True if the specified team is in checkmate
+     */
+    public boolean isInCheckmate(TeamColor teamColor) {
+        return status(teamColor) == GameStatus.CHECKMATE;
     }
 
     /**
@@ -268,26 +553,7 @@ public class ChessGame {
      * @return True if the specified team is in stalemate
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        if (isInCheck(teamColor)) {
-            return false;
-        }
-
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                ChessPosition position = new ChessPosition(i, j);
-                ChessPiece piece = board.getPiece(position);
-
-                if (piece == null || piece.getTeamColor() != teamColor) {
-                    continue;
-                }
-
-                Collection<ChessMove> moves = validMoves(position);
-                if (moves != null && !moves.isEmpty()) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return status(teamColor) == GameStatus.STALEMATE;
     }
 
     /**
@@ -297,6 +563,16 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        // A bare board carries no history, so assume any king and rook still
+        // at home haven't moved
+        castlingRights = CastlingRights.infer(board);
+        enPassantSquare = -1;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        history.clear();
+        positions.clear();
+        invalidateLegalMoves();
+        publishSnapshot();
     }
 
     /**
@@ -308,6 +584,111 @@ public class ChessGame {
         return board;
     }
 
+    /**
+     * Restores the state that isn't on the board, after setBoard, for
+     * deserializers that saved it
+     */
+    void restoreState(int castlingRights, int enPassantSquare, int halfmoveClock, int fullmoveNumber) {
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+        invalidateLegalMoves();
+        publishSnapshot();
+    }
+
+    /**
+     * Restores the keys of the positions since the last capture or pawn move,
+     * oldest first, for repetition detection
+     */
+    void restorePositionKeys(long[] positionKeys) {
+        positions.clear();
+        for (long key : positionKeys) {
+            positions.push(key);
+        }
+        publishSnapshot();
+    }
+
+    /**
+     * @return keys of the positions since the last capture or pawn move,
+     * oldest first
+     */
+    long[] recentPositionKeys() {
+        return positions.recent(halfmoveClock);
+    }
+
+    /**
+     * Returns the position as of the last accepted move or setter call. Safe
+     * to call from any thread while the owning thread plays on: the snapshot
+     * never changes, and a later move publishes a new one rather than
+     * altering it. Moves played with {@link #makeMoveUnchecked} and
+     * {@link #unmakeMove()} are not visible until {@link #publishSnapshot()}
+     * is called. Edits made directly to {@link #getBoard()} are picked up by
+     * the next call, so make them on the owning thread before sharing the game.
+     */
+    public PositionSnapshot snapshot() {
+        PositionSnapshot snapshot = published;
+        // Games built by reflection never ran a setter
+        if (snapshot == null || snapshot.isBehind(board)) {
+            return publishSnapshot();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Copies the current position into a new snapshot and makes it the one
+     * {@link #snapshot()} returns. Call from the thread that owns the game.
+     */
+    public PositionSnapshot publishSnapshot() {
+        PositionSnapshot snapshot = PositionSnapshot.capture(this);
+        published = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * @return an independent game in the current position, with the same
+     * rules state and repetition history but no moves to take back
+     */
+    public ChessGame copy() {
+        return PositionSnapshot.capture(this).toGame();
+    }
+
+    /**
+     * @return the current position in Forsyth-Edwards Notation
+     */
+    public String toFen() {
+        return Fen.format(PositionSnapshot.capture(this));
+    }
+
+    /**
+     * Builds a game from a position in Forsyth-Edwards Notation. The game has
+     * no moves to take back or earlier positions to repeat.
+     *
+     * @throws IllegalArgumentException if the FEN is malformed
+     */
+    public static ChessGame fromFen(String fen) {
+        return Fen.parse(fen);
+    }
+
+    /**
+     * @return the current position in the fixed-size {@link CompactPosition}
+     * encoding
+     * @throws IllegalStateException if the board holds more than 32 pieces
+     */
+    public byte[] toBytes() {
+        return CompactPosition.encode(PositionSnapshot.capture(this));
+    }
+
+    /**
+     * Builds a game from a {@link CompactPosition} encoding. The game has no
+     * moves to take back or earlier positions to repeat.
+     *
+     * @throws IllegalArgumentException if the bytes are not a valid encoding
+     */
+    public static ChessGame fromBytes(byte[] bytes) {
+        return CompactPosition.decode(bytes);
+    }
+
     public static void main(String[] args) {
         ChessGame game = new ChessGame();
         ChessBoard board = game.getBoard();
@@ -1,35 +1,292 @@
 package chess;
 
-import com.google.gson.*;
-import java.lang.reflect.Type;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
-public class ChessGameAdapter implements JsonSerializer<ChessGame>, JsonDeserializer<ChessGame> {
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
 
-    @Override
-    public JsonElement serialize(ChessGame src, Type typeOfSrc, JsonSerializationContext ctx) {
-        JsonObject obj = new JsonObject();
+/**
+ * Gson adapter for {@link ChessGame}. Games are written with the board as its
+ * full cell array, as plain Gson would, as a FEN string of around 60 bytes, or
+ * as the 30-byte {@link CompactPosition} in Base64 with the keys of recent
+ * positions packed in after it as 8-byte big-endian longs. Every form is read
+ * back whichever one the adapter writes, so switching formats never strands
+ * stored games.
+ * <p>
+ * The board is streamed cell by cell straight from the piece sets, without
+ * reflection or an intermediate JSON tree, in exactly the shape reflection
+ * produced: {@code {"board":[[null,...],[null,{"pieceColor":"WHITE","type":"ROOK"},...],...]}}.
+ */
+public class ChessGameAdapter extends TypeAdapter<ChessGame> {
+
+    public enum Format {
+        /** {"board":{"board":[[...]]},"teamTurn":...} plus rules state */
+        BOARD,
+        /** {"fen":"..."}, plus position keys when there are repetitions to track */
+        FEN,
+        /** {"binary":"<Base64>"}, the compact position followed by any position keys */
+        BINARY
+    }
 
-        obj.add("board", ctx.serialize(src.getBoard()));
-        obj.addProperty("teamTurn", src.getTeamTurn().name());
+    private final Format format;
 
-        return obj;
+    public ChessGameAdapter() {
+        this(Format.BOARD);
+    }
+
+    public ChessGameAdapter(Format format) {
+        this.format = format;
     }
 
     @Override
-    public ChessGame deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext ctx)
-            throws JsonParseException {
+    public void write(JsonWriter out, ChessGame game) throws IOException {
+        if (game == null) {
+            out.nullValue();
+            return;
+        }
+        // Serialize the last published position, not the live board, so a
+        // broadcast never races the thread applying the next move
+        PositionSnapshot position = game.snapshot();
+        out.beginObject();
+
+        if (format == Format.FEN) {
+            out.name("fen").value(Fen.format(position));
+        } else if (format == Format.BINARY) {
+            out.name("binary").value(Base64.getEncoder().encodeToString(binary(position)));
+            out.endObject();
+            return;
+        } else {
+            out.name("board");
+            writeBoard(out, position);
+            out.name("teamTurn").value(position.getTeamTurn().name());
+            out.name("castlingRights").value(position.getCastlingRights());
+            out.name("enPassantSquare").value(position.getEnPassantSquare());
+            out.name("halfmoveClock").value(position.getHalfmoveClock());
+            out.name("fullmoveNumber").value(position.getFullmoveNumber());
+        }
+        long[] recent = position.recentPositionKeys();
+        if (recent.length > 0 || format == Format.BOARD) {
+            out.name("positionKeys").beginArray();
+            for (long key : recent) {
+                out.value(key);
+            }
+            out.endArray();
+        }
+
+        out.endObject();
+    }
+
+    /**
+     * @return the compact position with its recent position keys appended,
+     * so repetitions survive a round trip at 8 bytes a key rather than the
+     * 20 digits each takes as a JSON number
+     */
+    private static byte[] binary(PositionSnapshot position) {
+        long[] recent = position.recentPositionKeys();
+        ByteBuffer bytes = ByteBuffer.allocate(CompactPosition.SIZE + recent.length * Long.BYTES);
+        bytes.put(CompactPosition.encode(position));
+        for (long key : recent) {
+            bytes.putLong(key);
+        }
+        return bytes.array();
+    }
+
+    /**
+     * @return the position keys packed in after a compact position
+     * @throws IllegalArgumentException if they are not whole keys
+     */
+    private static long[] packedKeys(byte[] bytes) {
+        int keyBytes = bytes.length - CompactPosition.SIZE;
+        if (keyBytes < 0 || keyBytes % Long.BYTES != 0) {
+            throw new IllegalArgumentException("Binary game is " + bytes.length + " bytes, not "
+                    + CompactPosition.SIZE + " plus whole position keys");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, CompactPosition.SIZE, keyBytes);
+        long[] keys = new long[keyBytes / Long.BYTES];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = buffer.getLong();
+        }
+        return keys;
+    }
 
-        JsonObject obj = json.getAsJsonObject();
+    private static void writeBoard(JsonWriter out, PositionSnapshot position) throws IOException {
+        out.beginObject().name("board").beginArray();
+        // Row and column 0 of the cell array are unused padding, written as nulls
+        for (int row = 0; row <= 8; row++) {
+            out.beginArray();
+            for (int col = 0; col <= 8; col++) {
+                ChessPiece piece = (row == 0 || col == 0) ? null : position.getPiece(Bitboards.square(row, col));
+                if (piece == null) {
+                    out.nullValue();
+                } else {
+                    out.beginObject()
+                            .name("pieceColor").value(piece.getTeamColor().name())
+                            .name("type").value(piece.getPieceType().name())
+                            .endObject();
+                }
+            }
+            out.endArray();
+        }
+        out.endArray().endObject();
+    }
 
-        ChessBoard board = ctx.deserialize(obj.get("board"), ChessBoard.class);
+    @Override
+    public ChessGame read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
 
-        ChessGame.TeamColor turn =
-                ChessGame.TeamColor.valueOf(obj.get("teamTurn").getAsString());
+        String fen = null;
+        String binary = null;
+        ChessBoard board = null;
+        ChessGame.TeamColor turn = ChessGame.TeamColor.WHITE;
+        Integer castlingRights = null;
+        int enPassantSquare = -1;
+        int halfmoveClock = 0;
+        int fullmoveNumber = 1;
+        long[] positionKeys = new long[0];
 
-        ChessGame game = new ChessGame();
-        game.setBoard(board);
-        game.setTeamTurn(turn);
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "fen" -> fen = in.nextString();
+                case "binary" -> binary = in.nextString();
+                case "board" -> board = readBoard(in);
+                case "teamTurn" -> turn = readEnum(in, ChessGame.TeamColor.class);
+                case "castlingRights" -> castlingRights = in.nextInt();
+                case "enPassantSquare" -> enPassantSquare = in.nextInt();
+                case "halfmoveClock" -> halfmoveClock = in.nextInt();
+                case "fullmoveNumber" -> fullmoveNumber = in.nextInt();
+                case "positionKeys" -> positionKeys = readKeys(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
 
+        ChessGame game;
+        if (binary != null) {
+            try {
+                byte[] bytes = Base64.getDecoder().decode(binary);
+                long[] packed = packedKeys(bytes);
+                game = ChessGame.fromBytes(Arrays.copyOf(bytes, CompactPosition.SIZE));
+                // A blob without keys may still come with a positionKeys array
+                if (packed.length > 0) {
+                    positionKeys = packed;
+                }
+            } catch (IllegalArgumentException e) {
+                throw new JsonSyntaxException(e.getMessage(), e);
+            }
+        } else if (fen != null) {
+            try {
+                game = ChessGame.fromFen(fen);
+            } catch (IllegalArgumentException e) {
+                throw new JsonSyntaxException(e.getMessage(), e);
+            }
+        } else if (board != null) {
+            game = new ChessGame();
+            game.setBoard(board);
+            game.setTeamTurn(turn);
+            // Games saved before these fields existed keep what setBoard inferred
+            if (castlingRights != null) {
+                if (castlingRights < CastlingRights.NONE || castlingRights > CastlingRights.ALL) {
+                    throw new JsonSyntaxException("Invalid castling rights: " + castlingRights);
+                }
+                if (enPassantSquare != -1 && !MoveGenerator.isEnPassantRank(turn, enPassantSquare)) {
+                    throw new JsonSyntaxException("Invalid en passant square for " + turn + " to move: "
+                            + enPassantSquare);
+                }
+                // As in a FEN, a square no enemy pawn has just passed over is dropped
+                if (enPassantSquare != -1 && !MoveGenerator.isEnPassantTarget(board, turn, enPassantSquare)) {
+                    enPassantSquare = -1;
+                }
+                game.restoreState(castlingRights, enPassantSquare, halfmoveClock, fullmoveNumber);
+            }
+        } else {
+            throw new JsonSyntaxException("ChessGame JSON has no board, fen or binary position");
+        }
+        game.restorePositionKeys(positionKeys);
         return game;
     }
+
+    private static ChessBoard readBoard(JsonReader in) throws IOException {
+        ChessBoard board = new ChessBoard();
+        in.beginObject();
+        while (in.hasNext()) {
+            if (!in.nextName().equals("board") || in.peek() == JsonToken.NULL) {
+                in.skipValue();
+                continue;
+            }
+            in.beginArray();
+            for (int row = 0; in.hasNext(); row++) {
+                in.beginArray();
+                for (int col = 0; in.hasNext(); col++) {
+                    ChessPiece piece = readPiece(in);
+                    if (piece != null && Bitboards.isOnBoard(row, col)) {
+                        board.addPiece(Bitboards.square(row, col), piece);
+                    }
+                }
+                in.endArray();
+            }
+            in.endArray();
+        }
+        in.endObject();
+        return board;
+    }
+
+    private static ChessPiece readPiece(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        ChessGame.TeamColor color = null;
+        ChessPiece.PieceType type = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "pieceColor" -> color = readEnum(in, ChessGame.TeamColor.class);
+                case "type" -> type = readEnum(in, ChessPiece.PieceType.class);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (color == null || type == null) {
+            throw new JsonSyntaxException("Chess piece is missing its color or type");
+        }
+        return ChessPiece.of(color, type);
+    }
+
+    private static <E extends Enum<E>> E readEnum(JsonReader in, Class<E> type) throws IOException {
+        String name = in.nextString();
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            throw new JsonSyntaxException("Unknown " + type.getSimpleName() + ": " + name, e);
+        }
+    }
+
+    private static long[] readKeys(JsonReader in) throws IOException {
+        long[] keys = new long[16];
+        int size = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            keys[size++] = in.nextLong();
+        }
+        in.endArray();
+        return Arrays.copyOf(keys, size);
+    }
 }
@@ -13,6 +13,14 @@ public class ChessPosition {
     private final int row;
     private final int col;
 
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            SQUARES[square] = new ChessPosition(Bitboards.row(square), Bitboards.col(square));
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
@@ -32,6 +40,27 @@ public class ChessPosition {
         this.col = col;
     }
 
+    /**
+     * Returns the shared instance for an on-board position. Positions are
+     * immutable, so there is no need to allocate one per use.
+     *
+     * @return the canonical position, or a fresh instance for off-board coordinates
+     */
+    public static ChessPosition of(int row, int col) {
+        if (!Bitboards.isOnBoard(row, col)) {
+            return new ChessPosition(row, col);
+        }
+        return SQUARES[Bitboards.square(row, col)];
+    }
+
+    /**
+     * @param square 0..63 square index, see {@link Bitboards#square(int, int)}
+     * @return the canonical position of that square
+     */
+    public static ChessPosition of(int square) {
+        return SQUARES[square];
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -59,6 +88,6 @@ public class ChessPosition {
         if (newRow < 1 || newRow > 8 || newCol < 1 || newCol > 8) {
             return null;
         }
-        return new ChessPosition(newRow, newCol);
+        return of(newRow, newCol);
     }
 }
@@ -0,0 +1,132 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size binary encoding of a game's position in {@value #SIZE} bytes:
+ * <pre>
+ *   0       format version ({@value #VERSION})
+ *   1..8    occupancy bitmap, big-endian, bit n set if square n holds a piece
+ *   9..24   one 4-bit piece code per occupied square in ascending square
+ *           order, high nibble first; the code is {@link Bitboards#pieceIndex}
+ *   25      bit 0 set if black is to move, bits 1..4 the castling rights
+ *   26      en passant square + 1, or 0 for none
+ *   27      halfmove clock, capped at 255
+ *   28..29  fullmove number, big-endian, capped at 65535
+ * </pre>
+ * Only the position travels; a decoded game has no moves to take back or
+ * earlier positions to repeat.
+ */
+public final class CompactPosition {
+
+    public static final int SIZE = 30;
+    public static final int VERSION = 1;
+
+    private static final int MAX_PIECES = 32;
+    private static final int OCCUPANCY = 1;
+    private static final int PIECES = 9;
+    private static final int FLAGS = 25;
+    private static final int EN_PASSANT = 26;
+    private static final int HALFMOVE = 27;
+    private static final int FULLMOVE = 28;
+
+    private static final ChessPiece[] BY_CODE = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                BY_CODE[Bitboards.pieceIndex(color, type)] = ChessPiece.of(color, type);
+            }
+        }
+    }
+
+    private CompactPosition() {
+    }
+
+    /**
+     * @throws IllegalStateException if the board holds more than 32 pieces,
+     *                               which no game reached by play can
+     */
+    public static byte[] encode(ChessGame game) {
+        return encode(PositionSnapshot.capture(game));
+    }
+
+    /**
+     * @throws IllegalStateException if the position holds more than 32 pieces
+     */
+    public static byte[] encode(PositionSnapshot position) {
+        long occupied = position.getOccupancy();
+        if (Long.bitCount(occupied) > MAX_PIECES) {
+            throw new IllegalStateException("Cannot encode a board with more than " + MAX_PIECES + " pieces");
+        }
+
+        byte[] bytes = new byte[SIZE];
+        bytes[0] = VERSION;
+        for (int i = 0; i < 8; i++) {
+            bytes[OCCUPANCY + i] = (byte) (occupied >>> (56 - 8 * i));
+        }
+        int nibble = 0;
+        for (long pieces = occupied; pieces != 0; pieces &= pieces - 1) {
+            ChessPiece piece = position.getPiece(Long.numberOfTrailingZeros(pieces));
+            int code = Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+            bytes[PIECES + nibble / 2] |= (byte) ((nibble & 1) == 0 ? code << 4 : code);
+            nibble++;
+        }
+
+        int blackToMove = position.getTeamTurn() == ChessGame.TeamColor.BLACK ? 1 : 0;
+        bytes[FLAGS] = (byte) (blackToMove | position.getCastlingRights() << 1);
+        bytes[EN_PASSANT] = (byte) (position.getEnPassantSquare() + 1);
+        bytes[HALFMOVE] = (byte) Math.min(position.getHalfmoveClock(), 0xFF);
+        int fullmove = Math.min(position.getFullmoveNumber(), 0xFFFF);
+        bytes[FULLMOVE] = (byte) (fullmove >>> 8);
+        bytes[FULLMOVE + 1] = (byte) fullmove;
+        return bytes;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not a valid encoding
+     */
+    public static ChessGame decode(byte[] bytes) {
+        if (bytes == null || bytes.length != SIZE || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Not a version " + VERSION + " compact position: "
+                    + Arrays.toString(bytes));
+        }
+        long occupied = 0L;
+        for (int i = 0; i < 8; i++) {
+            occupied = (occupied << 8) | (bytes[OCCUPANCY + i] & 0xFF);
+        }
+        if (Long.bitCount(occupied) > MAX_PIECES) {
+            throw new IllegalArgumentException("Compact position has more than " + MAX_PIECES + " pieces");
+        }
+
+        ChessBoard board = new ChessBoard();
+        int nibble = 0;
+        for (long pieces = occupied; pieces != 0; pieces &= pieces - 1) {
+            int packed = bytes[PIECES + nibble / 2] & 0xFF;
+            int code = (nibble & 1) == 0 ? packed >>> 4 : packed & 0xF;
+            if (code >= BY_CODE.length) {
+                throw new IllegalArgumentException("Invalid piece code in compact position: " + code);
+            }
+            board.addPiece(Long.numberOfTrailingZeros(pieces), BY_CODE[code]);
+            nibble++;
+        }
+
+        int flags = bytes[FLAGS] & 0xFF;
+        int enPassant = (bytes[EN_PASSANT] & 0xFF) - 1;
+        ChessGame.TeamColor turn = (flags & 1) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        if (flags >>> 5 != 0 || enPassant >= 0 && !MoveGenerator.isEnPassantRank(turn, enPassant)) {
+            throw new IllegalArgumentException("Invalid flags in compact position");
+        }
+        // As in a FEN, a square no enemy pawn has just passed over is dropped
+        if (enPassant >= 0 && !MoveGenerator.isEnPassantTarget(board, turn, enPassant)) {
+            enPassant = -1;
+        }
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(turn);
+        int fullmove = ((bytes[FULLMOVE] & 0xFF) << 8) | (bytes[FULLMOVE + 1] & 0xFF);
+        int castling = (flags >>> 1) & CastlingRights.infer(board);
+        game.restoreState(castling, enPassant, bytes[HALFMOVE] & 0xFF, Math.max(fullmove, 1));
+        return game;
+    }
+}
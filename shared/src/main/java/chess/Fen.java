@@ -0,0 +1,196 @@
+package chess;
+
+import java.util.function.IntFunction;
+
+/**
+ * Forsyth-Edwards Notation, the one-line text form of a chess position:
+ * piece placement from rank 8 down, side to move, castling rights, en passant
+ * square, halfmove clock and fullmove number, for example
+ * {@code rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1}.
+ */
+public final class Fen {
+
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECE_LETTERS = "kqbnrp";
+
+    private Fen() {
+    }
+
+    /**
+     * @return the full FEN of a game's current position
+     */
+    public static String format(ChessGame game) {
+        return format(PositionSnapshot.capture(game));
+    }
+
+    /**
+     * @return the full FEN of a snapshot's position
+     */
+    public static String format(PositionSnapshot snapshot) {
+        int enPassant = snapshot.getEnPassantSquare();
+        return placement(snapshot::getPiece)
+                + (snapshot.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w " : " b ")
+                + CastlingRights.toString(snapshot.getCastlingRights()) + ' '
+                + (enPassant < 0 ? "-" : squareName(enPassant)) + ' '
+                + snapshot.getHalfmoveClock() + ' '
+                + snapshot.getFullmoveNumber();
+    }
+
+    /**
+     * @return just the piece placement field for a board
+     */
+    public static String placement(ChessBoard board) {
+        return placement(board::getPiece);
+    }
+
+    private static String placement(IntFunction<ChessPiece> pieceAt) {
+        StringBuilder sb = new StringBuilder(72);
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = pieceAt.apply(Bitboards.square(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                sb.append(letter(piece));
+            }
+            if (empty > 0) {
+                sb.append(empty);
+            }
+            if (row > 1) {
+                sb.append('/');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Builds a game from a FEN. The halfmove clock and fullmove number may be
+     * left off, defaulting to 0 and 1. Castling rights whose king or rook is
+     * not at home, and an en passant square with no enemy pawn just past it
+     * or no pawn to capture onto it, are dropped, so the game's position key
+     * matches one reached by play.
+     *
+     * @throws IllegalArgumentException if the FEN is malformed
+     */
+    public static ChessGame parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4 || fields.length > 6) {
+            throw new IllegalArgumentException("Invalid FEN, expected 4 to 6 fields: " + fen);
+        }
+        ChessBoard board = parsePlacement(fields[0]);
+
+        ChessGame.TeamColor turn = switch (fields[1]) {
+            case "w" -> ChessGame.TeamColor.WHITE;
+            case "b" -> ChessGame.TeamColor.BLACK;
+            default -> throw new IllegalArgumentException("Invalid FEN side to move: " + fields[1]);
+        };
+        int castling = parseCastling(fields[2]) & CastlingRights.infer(board);
+        int enPassant = parseEnPassant(fields[3], turn, board);
+        int halfmoveClock = fields.length > 4 ? parseCount(fields[4], 0) : 0;
+        int fullmoveNumber = fields.length > 5 ? parseCount(fields[5], 1) : 1;
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(turn);
+        game.restoreState(castling, enPassant, halfmoveClock, fullmoveNumber);
+        return game;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the placement is malformed
+     */
+    public static ChessBoard parsePlacement(String placement) {
+        String[] ranks = placement.split("/", -1);
+        if (ranks.length != 8) {
+            throw new IllegalArgumentException("Invalid FEN placement, expected 8 ranks: " + placement);
+        }
+        ChessBoard board = new ChessBoard();
+        for (int i = 0; i < 8; i++) {
+            int row = 8 - i;
+            int col = 1;
+            for (char c : ranks[i].toCharArray()) {
+                boolean digit = c >= '1' && c <= '8';
+                int next = col + (digit ? c - '0' : 1);
+                if (next > 9) {
+                    throw new IllegalArgumentException("Invalid FEN rank, more than 8 squares: " + ranks[i]);
+                }
+                if (!digit) {
+                    board.addPiece(Bitboards.square(row, col), piece(c));
+                }
+                col = next;
+            }
+            if (col != 9) {
+                throw new IllegalArgumentException("Invalid FEN rank, expected 8 squares: " + ranks[i]);
+            }
+        }
+        return board;
+    }
+
+    /**
+     * @return the square in algebraic notation, such as "e3"
+     */
+    public static String squareName(int square) {
+        return "" + (char) ('a' + Bitboards.col(square) - 1) + Bitboards.row(square);
+    }
+
+    private static char letter(ChessPiece piece) {
+        char c = PIECE_LETTERS.charAt(piece.getPieceType().ordinal());
+        return piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(c) : c;
+    }
+
+    private static ChessPiece piece(char c) {
+        int type = PIECE_LETTERS.indexOf(Character.toLowerCase(c));
+        if (type < 0) {
+            throw new IllegalArgumentException("Invalid FEN piece: " + c);
+        }
+        ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        return ChessPiece.of(color, ChessPiece.PieceType.values()[type]);
+    }
+
+    private static int parseCastling(String field) {
+        if (field.equals("-")) {
+            return CastlingRights.NONE;
+        }
+        int rights = CastlingRights.NONE;
+        for (char c : field.toCharArray()) {
+            rights |= switch (c) {
+                case 'K' -> CastlingRights.WHITE_KINGSIDE;
+                case 'Q' -> CastlingRights.WHITE_QUEENSIDE;
+                case 'k' -> CastlingRights.BLACK_KINGSIDE;
+                case 'q' -> CastlingRights.BLACK_QUEENSIDE;
+                default -> throw new IllegalArgumentException("Invalid FEN castling rights: " + field);
+            };
+        }
+        return rights;
+    }
+
+    private static int parseEnPassant(String field, ChessGame.TeamColor turn, ChessBoard board) {
+        if (field.equals("-")) {
+            return -1;
+        }
+        char rank = turn == ChessGame.TeamColor.WHITE ? '6' : '3';
+        if (field.length() != 2 || field.charAt(0) < 'a' || field.charAt(0) > 'h' || field.charAt(1) != rank) {
+            throw new IllegalArgumentException("Invalid FEN en passant square: " + field);
+        }
+        int square = Bitboards.square(field.charAt(1) - '0', field.charAt(0) - 'a' + 1);
+        return MoveGenerator.isEnPassantTarget(board, turn, square) ? square : -1;
+    }
+
+    private static int parseCount(String field, int min) {
+        try {
+            int value = Integer.parseInt(field);
+            if (value >= min) {
+                return value;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Invalid FEN move count: " + field);
+    }
+}
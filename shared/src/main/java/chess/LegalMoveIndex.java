@@ -0,0 +1,98 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * One team's legal moves in a position, bucketed by from-square so that
+ * looking up a piece's moves, or whether a move is legal, touches only that
+ * piece's handful of entries. Built lazily by {@link ChessGame} and reused
+ * until the position changes.
+ */
+final class LegalMoveIndex {
+
+    private int[] moves = new int[MoveList.DEFAULT_CAPACITY];
+    private int size;
+    /** Moves from square s are at [start[s], start[s + 1]) */
+    private final int[] start = new int[65];
+    private final int[] cursor = new int[64];
+    private final long[] targets = new long[64];
+    private boolean built;
+    private long key;
+
+    boolean isCurrent(long positionKey) {
+        return built && key == positionKey;
+    }
+
+    void invalidate() {
+        built = false;
+    }
+
+    /**
+     * Replaces the index contents with the given moves, bucketing them by
+     * from-square
+     */
+    void build(MoveList generated, long positionKey) {
+        size = generated.size();
+        if (size > moves.length) {
+            moves = new int[Math.max(size, moves.length * 2)];
+        }
+        Arrays.fill(start, 0);
+        Arrays.fill(targets, 0L);
+        for (int i = 0; i < size; i++) {
+            start[Move.from(generated.get(i)) + 1]++;
+        }
+        for (int s = 0; s < 64; s++) {
+            start[s + 1] += start[s];
+            cursor[s] = start[s];
+        }
+        for (int i = 0; i < size; i++) {
+            int move = generated.get(i);
+            int from = Move.from(move);
+            moves[cursor[from]++] = move;
+            targets[from] |= Bitboards.bit(Move.to(move));
+        }
+        key = positionKey;
+        built = true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return moves[index];
+    }
+
+    /**
+     * @return index of the first move from the square; its moves run up to
+     * {@code end(from)}
+     */
+    int begin(int from) {
+        return start[from];
+    }
+
+    int end(int from) {
+        return start[from + 1];
+    }
+
+    /**
+     * @return the squares the piece on {@code from} can legally move to
+     */
+    long targets(int from) {
+        return targets[from];
+    }
+
+    boolean contains(int move) {
+        int from = Move.from(move);
+        if ((targets[from] & Bitboards.bit(Move.to(move))) == 0) {
+            return false;
+        }
+        // The target is reachable; only the promotion piece is left to match
+        for (int i = start[from]; i < start[from + 1]; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
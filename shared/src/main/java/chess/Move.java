@@ -0,0 +1,116 @@
+package chess;
+
+/**
+ * Packed 16-bit encoding of a chess move, for hot paths that cannot afford a
+ * {@link ChessMove} and its two {@link ChessPosition}s per move.
+ * <p>
+ * Bits 0-5 hold the start square, bits 6-11 the end square (both 0..63, see
+ * {@link Bitboards#square(int, int)}) and bits 12-14 the promotion piece as
+ * {@code PieceType.ordinal() + 1}, or 0 for no promotion.
+ */
+public final class Move {
+
+    /** Not a valid move; start and end squares are equal */
+    public static final int NONE = 0;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private Move() {
+    }
+
+    public static int encode(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int encode(int from, int to, ChessPiece.PieceType promotion) {
+        int move = from | (to << 6);
+        return promotion == null ? move : move | ((promotion.ordinal() + 1) << 12);
+    }
+
+    public static int encode(ChessMove move) {
+        return encode(Bitboards.square(move.getStartPosition()), Bitboards.square(move.getEndPosition()),
+                move.getPromotionPiece());
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * @return the promotion piece, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int code = (move >>> 12) & 0x7;
+        return code == 0 ? null : TYPES[code - 1];
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & 0x7000) != 0;
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(Bitboards.position(from(move)), Bitboards.position(to(move)), promotion(move));
+    }
+
+    /**
+     * @return the move in coordinate notation, such as "e2e4" or "a7a8q"
+     */
+    public static String toString(int move) {
+        StringBuilder sb = new StringBuilder(5);
+        appendSquare(sb, from(move));
+        appendSquare(sb, to(move));
+        ChessPiece.PieceType promo = promotion(move);
+        if (promo != null) {
+            sb.append(switch (promo) {
+                case QUEEN -> 'q';
+                case ROOK -> 'r';
+                case BISHOP -> 'b';
+                case KNIGHT -> 'n';
+                case KING -> 'k';
+                case PAWN -> 'p';
+            });
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param text a move in coordinate notation, such as "e2e4" or "a7a8q"
+     * @return the packed move; whether it is legal anywhere is not checked
+     * @throws IllegalArgumentException if the text is not in that notation
+     */
+    public static int parse(String text) {
+        if (text == null || text.length() < 4 || text.length() > 5) {
+            throw new IllegalArgumentException("Invalid move: " + text);
+        }
+        int from = parseSquare(text, 0);
+        int to = parseSquare(text, 2);
+        if (text.length() == 4) {
+            return encode(from, to);
+        }
+        ChessPiece.PieceType promotion = switch (text.charAt(4)) {
+            case 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'r' -> ChessPiece.PieceType.ROOK;
+            case 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'n' -> ChessPiece.PieceType.KNIGHT;
+            default -> throw new IllegalArgumentException("Invalid promotion piece in move: " + text);
+        };
+        return encode(from, to, promotion);
+    }
+
+    private static int parseSquare(String text, int index) {
+        int col = text.charAt(index) - 'a';
+        int row = text.charAt(index + 1) - '1';
+        if (col < 0 || col > 7 || row < 0 || row > 7) {
+            throw new IllegalArgumentException("Invalid square in move: " + text);
+        }
+        return row * 8 + col;
+    }
+
+    private static void appendSquare(StringBuilder sb, int square) {
+        sb.append((char) ('a' + (square & 7))).append((char) ('1' + (square >>> 3)));
+    }
+}
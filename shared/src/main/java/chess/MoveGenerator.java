@@ -0,0 +1,276 @@
+package chess;
+
+/**
+ * Allocation-free move generation over {@link ChessBoard}'s bitboards. Moves
+ * are appended to a caller-owned {@link MoveList} in the packed {@link Move}
+ * encoding.
+ * <p>
+ * The pseudo-legal generators don't consider the mover's own king. The legal
+ * generator works out checkers and pinned pieces once per position and masks
+ * each piece's targets with them, so it never has to try a move to see
+ * whether it exposes the king. It also produces castling and en passant,
+ * which need game state beyond the board; both use the ordinary packed form,
+ * a two-square king move and a pawn capture onto the en passant square.
+ */
+public final class MoveGenerator {
+
+    private static final ChessPiece.PieceType[] PROMOTION_TYPES = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT
+    };
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Appends the moves of a piece of the given color and type standing on
+     * {@code from}
+     */
+    public static void addPieceMoves(ChessBoard board, ChessGame.TeamColor color, ChessPiece.PieceType type,
+                                     int from, MoveList moves) {
+        if (type == ChessPiece.PieceType.PAWN) {
+            addPawnMoves(board, color, from, moves);
+            return;
+        }
+        long targets = Bitboards.attacks(color, type, from, board.getOccupancy()) & ~board.getTeamOccupancy(color);
+        addMoves(from, targets, moves);
+    }
+
+    /**
+     * Appends the moves of every piece of the given team
+     */
+    public static void addTeamMoves(ChessBoard board, ChessGame.TeamColor color, MoveList moves) {
+        for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+            for (long pieces = board.getPieceSet(color, type); pieces != 0; pieces &= pieces - 1) {
+                addPieceMoves(board, color, type, Long.numberOfTrailingZeros(pieces), moves);
+            }
+        }
+    }
+
+    /**
+     * Appends the legal moves of the given team's pieces on the squares in
+     * {@code fromMask}. Requires the team to have exactly one king; callers
+     * handle kingless or multi-king test positions some other way.
+     *
+     * @param castlingRights  {@link CastlingRights} bit set
+     * @param enPassantSquare square a pawn may capture onto en passant, or -1
+     */
+    public static void addLegalMoves(ChessBoard board, ChessGame.TeamColor us, long fromMask,
+                                     int castlingRights, int enPassantSquare, MoveList moves) {
+        ChessGame.TeamColor them = ChessGame.opponentOf(us);
+        int king = board.getKingSquare(us);
+        long kingBit = Bitboards.bit(king);
+        long own = board.getTeamOccupancy(us);
+        long occupied = board.getOccupancy();
+        long checkers = board.getAttackers(king, them);
+
+        if ((fromMask & kingBit) != 0) {
+            // The king itself must not shadow the squares behind it from a slider
+            long withoutKing = occupied ^ kingBit;
+            for (long targets = Bitboards.kingAttacks(king) & ~own; targets != 0; targets &= targets - 1) {
+                int to = Long.numberOfTrailingZeros(targets);
+                if (!board.isSquareAttacked(to, them, withoutKing)) {
+                    moves.add(Move.encode(king, to));
+                }
+            }
+            if (checkers == 0) {
+                addCastlingMoves(board, us, king, castlingRights, moves);
+            }
+        }
+        if (enPassantSquare >= 0) {
+            addEnPassantMoves(board, us, king, fromMask, enPassantSquare, moves);
+        }
+
+        if (Long.bitCount(checkers) > 1) {
+            return;
+        }
+        long evasionMask = checkers == 0
+                ? ~0L
+                : checkers | Bitboards.between(king, Long.numberOfTrailingZeros(checkers));
+        long pinned = pinnedPieces(board, us, king);
+
+        for (long pieces = own & ~kingBit & fromMask; pieces != 0; pieces &= pieces - 1) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            long allowed = evasionMask;
+            if ((pinned & Bitboards.bit(from)) != 0) {
+                allowed &= Bitboards.line(king, from);
+            }
+            ChessPiece.PieceType type = board.getPiece(from).getPieceType();
+            if (type == ChessPiece.PieceType.PAWN) {
+                addPawnMoves(board, us, from, allowed, moves);
+            } else {
+                addMoves(from, Bitboards.attacks(us, type, from, occupied) & ~own & allowed, moves);
+            }
+        }
+    }
+
+    private static void addCastlingMoves(ChessBoard board, ChessGame.TeamColor us, int king, int rights,
+                                         MoveList moves) {
+        if (king != CastlingRights.kingHome(us)) {
+            return;
+        }
+        ChessGame.TeamColor them = ChessGame.opponentOf(us);
+        long rooks = board.getPieceSet(us, ChessPiece.PieceType.ROOK);
+        long occupied = board.getOccupancy();
+        // The king may not start in, pass through or land on an attacked square;
+        // the caller has already ruled out the first
+        if ((rights & CastlingRights.kingside(us)) != 0
+                && (rooks & Bitboards.bit(king + 3)) != 0
+                && (Bitboards.between(king, king + 3) & occupied) == 0
+                && !board.isSquareAttacked(king + 1, them)
+                && !board.isSquareAttacked(king + 2, them)) {
+            moves.add(Move.encode(king, king + 2));
+        }
+        if ((rights & CastlingRights.queenside(us)) != 0
+                && (rooks & Bitboards.bit(king - 4)) != 0
+                && (Bitboards.between(king, king - 4) & occupied) == 0
+                && !board.isSquareAttacked(king - 1, them)
+                && !board.isSquareAttacked(king - 2, them)) {
+            moves.add(Move.encode(king, king - 2));
+        }
+    }
+
+    private static void addEnPassantMoves(ChessBoard board, ChessGame.TeamColor us, int king, long fromMask,
+                                          int target, MoveList moves) {
+        ChessGame.TeamColor them = ChessGame.opponentOf(us);
+        int captured = enPassantCaptureSquare(us, target);
+        // Our pawns that attack the target are the squares an enemy pawn there would attack
+        long capturers = board.getPieceSet(us, ChessPiece.PieceType.PAWN) & fromMask
+                & Bitboards.pawnAttacks(them, target);
+        for (; capturers != 0; capturers &= capturers - 1) {
+            int from = Long.numberOfTrailingZeros(capturers);
+            if (enPassantLeavesKingSafe(board, us, king, from, target, captured)) {
+                moves.add(Move.encode(from, target));
+            }
+        }
+    }
+
+    /**
+     * En passant empties two squares on the capturing pawn's rank at once,
+     * which the pin masks can't describe, so the position after the capture is
+     * checked directly
+     */
+    private static boolean enPassantLeavesKingSafe(ChessBoard board, ChessGame.TeamColor us, int king,
+                                                   int from, int target, int captured) {
+        ChessGame.TeamColor them = ChessGame.opponentOf(us);
+        long occupied = (board.getOccupancy() ^ Bitboards.bit(from) ^ Bitboards.bit(captured))
+                | Bitboards.bit(target);
+        long queens = board.getPieceSet(them, ChessPiece.PieceType.QUEEN);
+        long rooks = board.getPieceSet(them, ChessPiece.PieceType.ROOK) | queens;
+        long bishops = board.getPieceSet(them, ChessPiece.PieceType.BISHOP) | queens;
+        long pawns = board.getPieceSet(them, ChessPiece.PieceType.PAWN) & ~Bitboards.bit(captured);
+        return (Bitboards.rookAttacks(king, occupied) & rooks) == 0
+                && (Bitboards.bishopAttacks(king, occupied) & bishops) == 0
+                && (Bitboards.knightAttacks(king) & board.getPieceSet(them, ChessPiece.PieceType.KNIGHT)) == 0
+                && (Bitboards.pawnAttacks(us, king) & pawns) == 0;
+    }
+
+    /**
+     * @return the square of the pawn taken when {@code us} captures en passant
+     * onto {@code target}
+     */
+    static int enPassantCaptureSquare(ChessGame.TeamColor us, int target) {
+        return us == ChessGame.TeamColor.WHITE ? target - 8 : target + 8;
+    }
+
+    /**
+     * @return whether the square is on the board and on the rank an enemy
+     * pawn's double step passes over, the sixth for white to move and the
+     * third for black
+     */
+    static boolean isEnPassantRank(ChessGame.TeamColor turn, int square) {
+        int row = turn == ChessGame.TeamColor.WHITE ? 6 : 3;
+        return square >= 0 && square < 64 && Bitboards.row(square) == row;
+    }
+
+    /**
+     * @return whether {@code turn} could capture en passant onto the square
+     * as the board stands: the square is on the rank behind an enemy pawn's
+     * double step, that pawn stands past it with the square and the pawn's
+     * origin empty, and a pawn of {@code turn} attacks it
+     */
+    static boolean isEnPassantTarget(ChessBoard board, ChessGame.TeamColor turn, int square) {
+        if (!isEnPassantRank(turn, square)) {
+            return false;
+        }
+        ChessGame.TeamColor them = ChessGame.opponentOf(turn);
+        int captured = enPassantCaptureSquare(turn, square);
+        int origin = 2 * square - captured;
+        long empty = ~board.getOccupancy();
+        return (board.getPieceSet(them, ChessPiece.PieceType.PAWN) & Bitboards.bit(captured)) != 0
+                && (empty & Bitboards.bit(square)) != 0
+                && (empty & Bitboards.bit(origin)) != 0
+                && (Bitboards.pawnAttacks(them, square) & board.getPieceSet(turn, ChessPiece.PieceType.PAWN)) != 0;
+    }
+
+    /**
+     * @return the team's pieces that are the only thing standing between their
+     * king and an enemy slider
+     */
+    public static long pinnedPieces(ChessBoard board, ChessGame.TeamColor us, int king) {
+        ChessGame.TeamColor them = ChessGame.opponentOf(us);
+        long theirs = board.getTeamOccupancy(them);
+        long queens = board.getPieceSet(them, ChessPiece.PieceType.QUEEN);
+        // Rays from the king that only stop at enemy pieces find every slider lined up on it
+        long snipers = (Bitboards.rookAttacks(king, theirs)
+                        & (board.getPieceSet(them, ChessPiece.PieceType.ROOK) | queens))
+                | (Bitboards.bishopAttacks(king, theirs)
+                        & (board.getPieceSet(them, ChessPiece.PieceType.BISHOP) | queens));
+        long occupied = board.getOccupancy();
+        long own = board.getTeamOccupancy(us);
+        long pinned = 0L;
+        for (; snipers != 0; snipers &= snipers - 1) {
+            long blockers = Bitboards.between(king, Long.numberOfTrailingZeros(snipers)) & occupied;
+            if (Long.bitCount(blockers) == 1 && (blockers & own) != 0) {
+                pinned |= blockers;
+            }
+        }
+        return pinned;
+    }
+
+    private static void addPawnMoves(ChessBoard board, ChessGame.TeamColor color, int from, MoveList moves) {
+        addPawnMoves(board, color, from, ~0L, moves);
+    }
+
+    private static void addPawnMoves(ChessBoard board, ChessGame.TeamColor color, int from, long allowed,
+                                     MoveList moves) {
+        long empty = ~board.getOccupancy();
+        long bit = Bitboards.bit(from);
+
+        long pushes;
+        if (color == ChessGame.TeamColor.WHITE) {
+            long single = (bit << 8) & empty;
+            pushes = single | ((single & (Bitboards.RANK_1 << 16)) << 8) & empty;
+        } else {
+            long single = (bit >>> 8) & empty;
+            pushes = single | ((single & (Bitboards.RANK_8 >>> 16)) >>> 8) & empty;
+        }
+        long captures = Bitboards.pawnAttacks(color, from) & board.getTeamOccupancy(ChessGame.opponentOf(color));
+
+        long promotionRank = (color == ChessGame.TeamColor.WHITE) ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        long targets = (pushes | captures) & allowed;
+        addMoves(from, targets & ~promotionRank, moves);
+        addPromotions(from, targets & promotionRank, moves);
+    }
+
+    /**
+     * Adds a non-promoting move from {@code from} to every square in the target mask.
+     */
+    static void addMoves(int from, long targets, MoveList moves) {
+        for (; targets != 0; targets &= targets - 1) {
+            moves.add(Move.encode(from, Long.numberOfTrailingZeros(targets)));
+        }
+    }
+
+    /**
+     * Adds one move per promotion piece to every square in the target mask.
+     */
+    static void addPromotions(int from, long targets, MoveList moves) {
+        for (; targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            for (ChessPiece.PieceType promo : PROMOTION_TYPES) {
+                moves.add(Move.encode(from, to, promo));
+            }
+        }
+    }
+}
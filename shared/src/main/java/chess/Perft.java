@@ -0,0 +1,251 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft ("performance test") driver: counts the leaf nodes of the legal move
+ * tree to a fixed depth. The counts for well-known positions are published,
+ * so perft is both a correctness check for move generation and a single
+ * throughput number for it.
+ * <p>
+ * {@link #parallelPerft} splits the tree over a fork-join pool, each task on
+ * its own copy of the game, and can share a cache of subtree counts between
+ * the tasks so transpositions are counted once.
+ */
+public final class Perft {
+
+    private static final int MAX_DEPTH = 32;
+    /** Subtrees this shallow are counted in the task that reaches them */
+    private static final int SEQUENTIAL_DEPTH = 3;
+
+    /**
+     * Node count and elapsed time of one perft run
+     */
+    public record Result(long nodes, long nanos) {
+        public double nodesPerSecond() {
+            return nanos == 0 ? 0 : nodes * 1_000_000_000.0 / nanos;
+        }
+    }
+
+    private final ChessGame game;
+    private final MoveList[] lists = new MoveList[MAX_DEPTH + 1];
+    private final Cache cache;
+
+    private Perft(ChessGame game) {
+        this(game, null);
+    }
+
+    private Perft(ChessGame game, Cache cache) {
+        this.game = game;
+        this.cache = cache;
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = new MoveList();
+        }
+    }
+
+    /**
+     * Counts leaf nodes to the given depth from the side to move. The game is
+     * played forward and back in place and is left as it was found.
+     */
+    public static long perft(ChessGame game, int depth) {
+        checkDepth(depth);
+        return new Perft(game).count(depth);
+    }
+
+    public static Result run(ChessGame game, int depth) {
+        long start = System.nanoTime();
+        long nodes = perft(game, depth);
+        return new Result(nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * As {@link #perft}, on the common fork-join pool without a cache
+     */
+    public static long parallelPerft(ChessGame game, int depth) {
+        return parallelPerft(game, depth, ForkJoinPool.commonPool(), 0);
+    }
+
+    /**
+     * Counts leaf nodes to the given depth with the tree split into tasks on
+     * {@code pool}. The caller's game is only copied, never played in.
+     *
+     * @param cacheMegabytes memory for a shared cache of subtree counts, or 0
+     *                       to count every subtree in full
+     */
+    public static long parallelPerft(ChessGame game, int depth, ForkJoinPool pool, int cacheMegabytes) {
+        checkDepth(depth);
+        Cache cache = cacheMegabytes > 0 ? new Cache(cacheMegabytes) : null;
+        return pool.invoke(new CountTask(game.copy(), depth, cache));
+    }
+
+    /**
+     * Counts one subtree, forking a task per move until the remaining depth
+     * is small enough that splitting further costs more than it saves
+     */
+    private static final class CountTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ChessGame game;
+        private final int depth;
+        private final Cache cache;
+
+        CountTask(ChessGame game, int depth, Cache cache) {
+            this.game = game;
+            this.depth = depth;
+            this.cache = cache;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth <= SEQUENTIAL_DEPTH) {
+                return new Perft(game, cache).count(depth);
+            }
+            long key = game.positionKey();
+            if (cache != null) {
+                long cached = cache.get(key, depth);
+                if (cached >= 0) {
+                    return cached;
+                }
+            }
+            MoveList moves = new MoveList();
+            game.generateValidMoves(game.getTeamTurn(), moves);
+            List<CountTask> children = new ArrayList<>(moves.size());
+            for (int i = 0; i < moves.size(); i++) {
+                game.makeMoveUnchecked(moves.get(i));
+                children.add(new CountTask(game.copy(), depth - 1, cache));
+                game.unmakeMove();
+            }
+            long nodes = 0;
+            for (CountTask child : invokeAll(children)) {
+                nodes += child.join();
+            }
+            if (cache != null) {
+                cache.put(key, depth, nodes);
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * Subtree counts by position and depth, two longs per entry in one array:
+     * the count, and the position's depth-mixed key XORed with it. As with the
+     * engine's transposition table, an entry torn by concurrent writers fails
+     * the XOR check and reads as a miss, so no locking is needed.
+     */
+    private static final class Cache {
+
+        private final long[] table;
+        private final int mask;
+
+        Cache(int megabytes) {
+            int entries = (int) Long.highestOneBit(Math.min((long) megabytes << 16, 1L << 29));
+            table = new long[entries * 2];
+            mask = entries - 1;
+        }
+
+        /**
+         * @return the count, or -1 if it isn't cached
+         */
+        long get(long key, int depth) {
+            long mixed = mix(key, depth);
+            int index = ((int) mixed & mask) * 2;
+            long nodes = table[index];
+            return (table[index + 1] ^ nodes) == mixed && nodes != 0 ? nodes : -1;
+        }
+
+        void put(long key, int depth, long nodes) {
+            long mixed = mix(key, depth);
+            int index = ((int) mixed & mask) * 2;
+            table[index] = nodes;
+            table[index + 1] = mixed ^ nodes;
+        }
+
+        private static long mix(long key, int depth) {
+            return key ^ (depth * 0x9E3779B97F4A7C15L);
+        }
+    }
+
+    /**
+     * Splits the perft count by root move, which makes it easy to find the
+     * move a generator gets wrong by comparing against a reference engine.
+     *
+     * @return leaf count per root move, keyed by coordinate notation such as "e2e4"
+     */
+    public static Map<String, Long> divide(ChessGame game, int depth) {
+        checkDepth(depth);
+        Perft perft = new Perft(game);
+        MoveList moves = new MoveList();
+        game.generateValidMoves(game.getTeamTurn(), moves);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            game.makeMoveUnchecked(move);
+            counts.put(Move.toString(move), perft.count(depth - 1));
+            game.unmakeMove();
+        }
+        return counts;
+    }
+
+    private long count(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        // Counts one ply from the leaves cost less to regenerate than to cache
+        long key = 0;
+        if (cache != null && depth > 1) {
+            key = game.positionKey();
+            long cached = cache.get(key, depth);
+            if (cached >= 0) {
+                return cached;
+            }
+        }
+        MoveList moves = lists[depth];
+        moves.clear();
+        game.generateValidMoves(game.getTeamTurn(), moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            game.makeMoveUnchecked(moves.get(i));
+            nodes += count(depth - 1);
+            game.unmakeMove();
+        }
+        if (cache != null) {
+            cache.put(key, depth, nodes);
+        }
+        return nodes;
+    }
+
+    private static void checkDepth(int depth) {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Perft depth must be between 1 and " + MAX_DEPTH);
+        }
+    }
+
+    /**
+     * Runs divide from the starting position and reports throughput.
+     * Usage: {@code Perft [depth]}, default depth 5.
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        ChessGame game = new ChessGame();
+
+        long start = System.nanoTime();
+        long total = 0;
+        for (Map.Entry<String, Long> entry : divide(game, depth).entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+            total += entry.getValue();
+        }
+        Result result = new Result(total, System.nanoTime() - start);
+
+        System.out.printf("%nNodes searched: %d%n", result.nodes());
+        System.out.printf("Time: %.3f s, %.0f nodes/s%n", result.nanos() / 1e9, result.nodesPerSecond());
+    }
+}
@@ -0,0 +1,55 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Position keys of the positions a game has passed through, oldest first,
+ * for spotting repeated positions without replaying the game.
+ */
+final class PositionHistory {
+
+    private long[] keys = new long[64];
+    private int size;
+
+    void push(long key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        keys[size++] = key;
+    }
+
+    void pop() {
+        size--;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return the most recent {@code count} keys, oldest first
+     */
+    long[] recent(int count) {
+        int n = Math.min(count, size);
+        return Arrays.copyOfRange(keys, size - n, size);
+    }
+
+    /**
+     * Counts earlier occurrences of a position. Only every second entry can
+     * match, as the side to move must be the same, and nothing before the last
+     * capture or pawn move can, so the scan stops {@code window} plies back.
+     *
+     * @param key    the current position's key
+     * @param window plies since the last irreversible move
+     */
+    int occurrences(long key, int window) {
+        int count = 0;
+        int stop = Math.max(0, size - window);
+        for (int i = size - 2; i >= stop; i -= 2) {
+            if (keys[i] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,176 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * An immutable copy of a game's position: the twelve piece bitboards plus the
+ * side to move and the rest of the rules state. {@link ChessGame} publishes a
+ * fresh one after every move it accepts, so other threads can serialize or
+ * draw the game without locks and never see a half-applied move.
+ */
+public final class PositionSnapshot {
+
+    private final long[] pieceSets;
+    private final long occupied;
+    private final ChessGame.TeamColor teamTurn;
+    private final int castlingRights;
+    private final int enPassantSquare;
+    private final int halfmoveClock;
+    private final int fullmoveNumber;
+    private final long positionKey;
+    private final long[] recentPositionKeys;
+    /** The board's edit count when this was taken */
+    private final int boardEdits;
+
+    private PositionSnapshot(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        pieceSets = new long[12];
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                pieceSets[Bitboards.pieceIndex(color, type)] = board.getPieceSet(color, type);
+            }
+        }
+        occupied = board.getOccupancy();
+        teamTurn = game.getTeamTurn();
+        castlingRights = game.getCastlingRights();
+        ChessPosition enPassant = game.getEnPassantPosition();
+        enPassantSquare = enPassant == null ? -1 : Bitboards.square(enPassant);
+        halfmoveClock = game.getHalfmoveClock();
+        fullmoveNumber = game.getFullmoveNumber();
+        positionKey = game.positionKey();
+        recentPositionKeys = game.recentPositionKeys();
+        boardEdits = board.edits();
+    }
+
+    /**
+     * Copies a game's current position. Only the thread that owns the game
+     * should call this; others should use {@link ChessGame#snapshot()}.
+     */
+    static PositionSnapshot capture(ChessGame game) {
+        return new PositionSnapshot(game);
+    }
+
+    /**
+     * @return true if the board has been edited through addPiece since this
+     * was taken
+     */
+    boolean isBehind(ChessBoard board) {
+        return board.edits() != boardEdits;
+    }
+
+    /**
+     * @param square 0..63 square index, see {@link Bitboards#square(int, int)}
+     * @return the piece on the square, or null if it is empty
+     */
+    public ChessPiece getPiece(int square) {
+        long bit = Bitboards.bit(square);
+        if ((occupied & bit) == 0) {
+            return null;
+        }
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                if ((pieceSets[Bitboards.pieceIndex(color, type)] & bit) != 0) {
+                    return ChessPiece.of(color, type);
+                }
+            }
+        }
+        return null;
+    }
+
+    public ChessPiece getPiece(ChessPosition position) {
+        return getPiece(Bitboards.square(position));
+    }
+
+    public long getPieceSet(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieceSets[Bitboards.pieceIndex(color, type)];
+    }
+
+    public long getOccupancy() {
+        return occupied;
+    }
+
+    public ChessGame.TeamColor getTeamTurn() {
+        return teamTurn;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * @return the en passant target square, or -1 for none
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public long positionKey() {
+        return positionKey;
+    }
+
+    /**
+     * @return keys of the positions since the last capture or pawn move,
+     * oldest first
+     */
+    long[] recentPositionKeys() {
+        return recentPositionKeys;
+    }
+
+    /**
+     * @return a new mutable board holding this position's pieces
+     */
+    public ChessBoard toBoard() {
+        ChessBoard board = new ChessBoard();
+        for (long pieces = occupied; pieces != 0; pieces &= pieces - 1) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            board.addPiece(square, getPiece(square));
+        }
+        return board;
+    }
+
+    /**
+     * @return a new game in this position, with the same rules state and
+     * repetition history but no moves to take back
+     */
+    public ChessGame toGame() {
+        ChessGame game = new ChessGame();
+        game.setBoard(toBoard());
+        game.setTeamTurn(teamTurn);
+        game.restoreState(castlingRights, enPassantSquare, halfmoveClock, fullmoveNumber);
+        game.restorePositionKeys(recentPositionKeys);
+        return game;
+    }
+
+    public String toFen() {
+        return Fen.format(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PositionSnapshot that = (PositionSnapshot) o;
+        return teamTurn == that.teamTurn && castlingRights == that.castlingRights
+                && enPassantSquare == that.enPassantSquare && halfmoveClock == that.halfmoveClock
+                && fullmoveNumber == that.fullmoveNumber && Arrays.equals(pieceSets, that.pieceSets);
+    }
+
+    @Override
+    public int hashCode() {
+        return Zobrist.fold(positionKey);
+    }
+
+    @Override
+    public String toString() {
+        return "PositionSnapshot{" + toFen() + '}';
+    }
+}
@@ -0,0 +1,138 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Checks that positions could arise in a real game, one at a time or in bulk
+ * across a fork-join pool for sweeps over stored games. Positions may be
+ * given as FEN or as ChessGame JSON in any of {@link ChessGameAdapter}'s
+ * formats.
+ */
+public final class PositionValidator {
+
+    /** Positions per task below which a batch is not split further */
+    private static final int BATCH_THRESHOLD = 256;
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(ChessGame.class, new ChessGameAdapter()).create();
+
+    private static final long BACK_RANKS = 0xFF000000000000FFL;
+
+    /**
+     * @param index   the position's index in the batch
+     * @param problem why the position is invalid, or null if it is valid
+     */
+    public record Result(int index, String problem) {
+        public boolean isValid() {
+            return problem == null;
+        }
+    }
+
+    private PositionValidator() {
+    }
+
+    /**
+     * @return why the game's position is impossible, or null if it is legal
+     */
+    public static String problem(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            int kings = Long.bitCount(board.getPieceSet(color, ChessPiece.PieceType.KING));
+            if (kings != 1) {
+                return color + " has " + kings + " kings";
+            }
+            if (Long.bitCount(board.getTeamOccupancy(color)) > 16) {
+                return color + " has more than 16 pieces";
+            }
+            long pawns = board.getPieceSet(color, ChessPiece.PieceType.PAWN);
+            if (Long.bitCount(pawns) > 8) {
+                return color + " has more than 8 pawns";
+            }
+            if ((pawns & BACK_RANKS) != 0) {
+                return color + " has a pawn on the first or last rank";
+            }
+        }
+        ChessGame.TeamColor waiting = ChessGame.opponentOf(game.getTeamTurn());
+        if (game.isInCheck(waiting)) {
+            return waiting + " is in check but it is " + game.getTeamTurn() + "'s turn";
+        }
+        return null;
+    }
+
+    /**
+     * @param position FEN, or ChessGame JSON if it starts with '{'
+     * @return why the position is unreadable or impossible, or null if it is
+     * legal. Anything thrown while reading or checking it is reported as its
+     * problem, so one bad row never fails a whole batch.
+     */
+    public static String problem(String position) {
+        try {
+            ChessGame game = parse(position);
+            return game == null ? "No position" : problem(game);
+        } catch (RuntimeException e) {
+            return e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+    }
+
+    /**
+     * As {@link #validateAll(List, ForkJoinPool)}, on the common pool
+     */
+    public static List<Result> validateAll(List<String> positions) {
+        return validateAll(positions, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Validates every position, splitting the list across {@code pool}
+     *
+     * @return one result per position, in the same order
+     */
+    public static List<Result> validateAll(List<String> positions, ForkJoinPool pool) {
+        Result[] results = new Result[positions.size()];
+        pool.invoke(new ValidateTask(positions, results, 0, results.length));
+        return Arrays.asList(results);
+    }
+
+    private static ChessGame parse(String position) {
+        if (position == null) {
+            return null;
+        }
+        String trimmed = position.trim();
+        return trimmed.startsWith("{") ? GSON.fromJson(trimmed, ChessGame.class) : Fen.parse(trimmed);
+    }
+
+    private static final class ValidateTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> positions;
+        private final Result[] results;
+        private final int from;
+        private final int to;
+
+        ValidateTask(List<String> positions, Result[] results, int from, int to) {
+            this.positions = positions;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results[i] = new Result(i, problem(positions.get(i)));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ValidateTask(positions, results, from, middle),
+                    new ValidateTask(positions, results, middle, to));
+        }
+    }
+}
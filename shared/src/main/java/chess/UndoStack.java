@@ -0,0 +1,61 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Growable stack of undo records for {@link ChessGame}, kept as parallel
+ * arrays so that making a move pushes a few slots instead of allocating a
+ * record object.
+ */
+final class UndoStack {
+
+    int[] moves = new int[64];
+    ChessPiece[] moved = new ChessPiece[64];
+    ChessPiece[] captured = new ChessPiece[64];
+    ChessGame.TeamColor[] priorTurn = new ChessGame.TeamColor[64];
+    int[] priorCastlingRights = new int[64];
+    int[] priorEnPassantSquare = new int[64];
+    int[] priorHalfmoveClock = new int[64];
+    int size;
+
+    /**
+     * @return the slot of the new record
+     */
+    int push(int move, ChessPiece movedPiece, ChessPiece capturedPiece, ChessGame.TeamColor turn,
+             int castlingRights, int enPassantSquare, int halfmoveClock) {
+        if (size == moves.length) {
+            int capacity = size * 2;
+            moves = Arrays.copyOf(moves, capacity);
+            moved = Arrays.copyOf(moved, capacity);
+            captured = Arrays.copyOf(captured, capacity);
+            priorTurn = Arrays.copyOf(priorTurn, capacity);
+            priorCastlingRights = Arrays.copyOf(priorCastlingRights, capacity);
+            priorEnPassantSquare = Arrays.copyOf(priorEnPassantSquare, capacity);
+            priorHalfmoveClock = Arrays.copyOf(priorHalfmoveClock, capacity);
+        }
+        moves[size] = move;
+        moved[size] = movedPiece;
+        captured[size] = capturedPiece;
+        priorTurn[size] = turn;
+        priorCastlingRights[size] = castlingRights;
+        priorEnPassantSquare[size] = enPassantSquare;
+        priorHalfmoveClock[size] = halfmoveClock;
+        return size++;
+    }
+
+    /**
+     * @return the slot of the record just popped, valid until the next push
+     */
+    int pop() {
+        if (size == 0) {
+            throw new IllegalStateException("No move to unmake");
+        }
+        return --size;
+    }
+
+    void clear() {
+        Arrays.fill(moved, 0, size, null);
+        Arrays.fill(captured, 0, size, null);
+        size = 0;
+    }
+}
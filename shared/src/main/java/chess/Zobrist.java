@@ -0,0 +1,74 @@
+package chess;
+
+/**
+ * Random keys for Zobrist hashing of chess positions. A position's key is the
+ * XOR of one key per (piece, square) pair on the board, plus a key when black
+ * is to move, so moving a piece or passing the turn updates it with a couple
+ * of XORs instead of re-walking the board. Castling rights and a capturable
+ * en passant file add one more key each.
+ */
+public final class Zobrist {
+
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long BLACK_TO_MOVE;
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+
+    static {
+        // Fixed seed so keys are stable across runs and can be persisted
+        long[] state = {0x9E3779B97F4A7C15L};
+        for (long[] squares : PIECE_SQUARE) {
+            for (int sq = 0; sq < 64; sq++) {
+                squares[sq] = next(state);
+            }
+        }
+        BLACK_TO_MOVE = next(state);
+        // Drawn after the original keys so that those keep their values
+        for (int rights = 1; rights < CASTLING.length; rights++) {
+            CASTLING[rights] = next(state);
+        }
+        for (int file = 0; file < EN_PASSANT_FILE.length; file++) {
+            EN_PASSANT_FILE[file] = next(state);
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    public static long pieceKey(ChessPiece piece, int square) {
+        return PIECE_SQUARE[Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType())][square];
+    }
+
+    public static long sideKey(ChessGame.TeamColor toMove) {
+        return toMove == ChessGame.TeamColor.BLACK ? BLACK_TO_MOVE : 0L;
+    }
+
+    /**
+     * @param rights a {@link CastlingRights} bit set
+     */
+    public static long castlingKey(int rights) {
+        return CASTLING[rights];
+    }
+
+    /**
+     * @param square the en passant target square, or -1 for none
+     */
+    public static long enPassantKey(int square) {
+        return square < 0 ? 0L : EN_PASSANT_FILE[square & 7];
+    }
+
+    /**
+     * Folds a 64-bit key down to an int hash code
+     */
+    public static int fold(long key) {
+        return (int) (key ^ (key >>> 32));
+    }
+
+    /** splitmix64 */
+    private static long next(long[] state) {
+        long z = (state[0] += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
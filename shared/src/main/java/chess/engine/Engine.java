@@ -0,0 +1,152 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Picks moves for hints, bots and adjudication. Each call searches a private
+ * copy of the game, so the caller's game is never touched and may keep being
+ * played or read while the engine thinks.
+ * <p>
+ * An engine keeps one {@link TranspositionTable} for its lifetime, so
+ * positions seen by earlier calls, such as the previous move's hint, are not
+ * searched again. Calls may run on several threads at once and share it.
+ * <p>
+ * With more than one search thread, each call also runs helper searches of
+ * the same position on a {@link ForkJoinPool} (the "lazy SMP" scheme). The
+ * helpers share nothing with the caller's search but the table; half of them
+ * work a ply ahead, and whatever they store there makes the caller's search
+ * faster. The answer comes from whichever search completed the deepest
+ * iteration.
+ * <p>
+ * Given an {@link OpeningBook}, the engine answers from it without searching
+ * for as long as the game stays in book.
+ */
+public class Engine implements AutoCloseable {
+
+    /** Deepest iteration any search will start */
+    public static final int MAX_DEPTH = Search.MAX_PLY - 1;
+
+    private final TranspositionTable table;
+    private final int threads;
+    private final ForkJoinPool pool;
+    private volatile OpeningBook book;
+
+    public Engine() {
+        this(TranspositionTable.DEFAULT_MEGABYTES);
+    }
+
+    /**
+     * @param hashMegabytes memory for the transposition table, allocated now
+     */
+    public Engine(int hashMegabytes) {
+        this(hashMegabytes, 1);
+    }
+
+    /**
+     * @param hashMegabytes memory for the transposition table, allocated now
+     * @param threads       searches to run per call, the caller's included
+     */
+    public Engine(int hashMegabytes, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Engine needs at least 1 thread, not " + threads);
+        }
+        table = new TranspositionTable(hashMegabytes);
+        this.threads = threads;
+        pool = threads > 1 ? new ForkJoinPool(threads - 1) : null;
+    }
+
+    /**
+     * @param game       the position to move in
+     * @param timeBudget roughly how long to think; depth 1 always completes
+     * @return the move the side to move should play, or null if it has none
+     */
+    public ChessMove bestMove(ChessGame game, Duration timeBudget) {
+        return analyze(game, timeBudget).bestMove();
+    }
+
+    /**
+     * As {@link #bestMove}, with the score, depth and expected line
+     */
+    public SearchResult analyze(ChessGame game, Duration timeBudget) {
+        return search(game, System.nanoTime() + timeBudget.toNanos(), MAX_DEPTH);
+    }
+
+    /**
+     * As {@link #analyze(ChessGame, Duration)}, searching until a wall-clock
+     * deadline
+     */
+    public SearchResult analyze(ChessGame game, Instant deadline) {
+        return analyze(game, Duration.between(Instant.now(), deadline));
+    }
+
+    /**
+     * Searches to a fixed depth regardless of time. With one thread the result
+     * depends only on the position and what earlier calls left in the table.
+     */
+    public SearchResult analyze(ChessGame game, int depth) {
+        return search(game, System.nanoTime() + Duration.ofDays(1).toNanos(), depth);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param book book to play from before searching, or null for none
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    public OpeningBook getOpeningBook() {
+        return book;
+    }
+
+    private SearchResult search(ChessGame game, long deadline, int maxDepth) {
+        OpeningBook openingBook = book;
+        ChessMove bookMove = openingBook == null ? null : openingBook.bestMove(game);
+        if (bookMove != null) {
+            return new SearchResult(bookMove, 0, 0, 0, List.of(bookMove));
+        }
+
+        table.newSearch();
+        AtomicBoolean stop = new AtomicBoolean();
+        List<ForkJoinTask<SearchResult>> helpers = new ArrayList<>(threads - 1);
+        for (int i = 1; i < threads; i++) {
+            Search helper = new Search(game.copy(), table, stop);
+            int depthOffset = i % 2;
+            helpers.add(pool.submit(() -> helper.search(deadline, maxDepth, depthOffset, true)));
+        }
+
+        SearchResult best = new Search(game.copy(), table, stop).search(deadline, maxDepth, 0, false);
+        stop.set(true);
+        long nodes = best.nodes();
+        for (ForkJoinTask<SearchResult> task : helpers) {
+            SearchResult result = task.join();
+            nodes += result.nodes();
+            if (result.bestMove() != null && result.depth() > best.depth()) {
+                best = result;
+            }
+        }
+        return new SearchResult(best.bestMove(), best.score(), best.depth(), nodes, best.principalVariation());
+    }
+
+    /**
+     * Stops the helper threads. Searches already running finish first.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
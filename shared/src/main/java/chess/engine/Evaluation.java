@@ -0,0 +1,148 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+/**
+ * Static evaluation: material plus a piece-square table bonus for each piece,
+ * in centipawns. The king's table blends from a sheltered middlegame table to
+ * a centralizing endgame one as the other pieces come off.
+ * <p>
+ * Tables are written as seen from white with rank 8 on top, so a white
+ * piece on square n reads entry {@code n ^ 56} and a black piece entry n.
+ */
+public final class Evaluation {
+
+    /** Indexed by {@link ChessPiece.PieceType} ordinal */
+    static final int[] PIECE_VALUES = {0, 900, 330, 320, 500, 100};
+
+    /** Minor pieces count 1, rooks 2, queens 4; 24 with every piece on */
+    private static final int[] PHASE_WEIGHTS = {0, 4, 1, 1, 2, 0};
+    private static final int FULL_PHASE = 24;
+
+    private static final int[] PAWN = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0,
+    };
+
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50,
+    };
+
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20,
+    };
+
+    private static final int[] ROOK = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0,
+    };
+
+    private static final int[] QUEEN = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20,
+    };
+
+    private static final int[] KING_MIDDLEGAME = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20,
+    };
+
+    private static final int[] KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50,
+    };
+
+    /** Indexed by {@link ChessPiece.PieceType} ordinal; the king is tapered separately */
+    private static final int[][] TABLES = {null, QUEEN, BISHOP, KNIGHT, ROOK, PAWN};
+
+    private Evaluation() {
+    }
+
+    /**
+     * @param board the position to score
+     * @param side  the side to move
+     * @return the score in centipawns from {@code side}'s point of view
+     */
+    public static int evaluate(ChessBoard board, ChessGame.TeamColor side) {
+        int score = 0;
+        int phase = 0;
+        int kingMiddlegame = 0;
+        int kingEndgame = 0;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            int sign = color == side ? 1 : -1;
+            int flip = color == ChessGame.TeamColor.WHITE ? 56 : 0;
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                long pieces = board.getPieceSet(color, type);
+                if (type == ChessPiece.PieceType.KING) {
+                    for (; pieces != 0; pieces &= pieces - 1) {
+                        int index = Long.numberOfTrailingZeros(pieces) ^ flip;
+                        kingMiddlegame += sign * KING_MIDDLEGAME[index];
+                        kingEndgame += sign * KING_ENDGAME[index];
+                    }
+                    continue;
+                }
+                int[] table = TABLES[type.ordinal()];
+                int value = PIECE_VALUES[type.ordinal()];
+                phase += PHASE_WEIGHTS[type.ordinal()] * Long.bitCount(pieces);
+                for (; pieces != 0; pieces &= pieces - 1) {
+                    score += sign * (value + table[Long.numberOfTrailingZeros(pieces) ^ flip]);
+                }
+            }
+        }
+        phase = Math.min(phase, FULL_PHASE);
+        return score + (kingMiddlegame * phase + kingEndgame * (FULL_PHASE - phase)) / FULL_PHASE;
+    }
+
+    /**
+     * @return the centipawn value of a piece type, 0 for the king
+     */
+    public static int value(ChessPiece.PieceType type) {
+        return PIECE_VALUES[type.ordinal()];
+    }
+}
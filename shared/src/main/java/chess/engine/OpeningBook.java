@@ -0,0 +1,270 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.Move;
+import chess.MoveList;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Opening moves by position, read from a file that is memory-mapped rather
+ * than loaded, so a book of any size costs no heap and a lookup is a binary
+ * search touching a handful of pages.
+ * <p>
+ * The file is big-endian: a 16-byte header (magic {@code "CBK1"}, version,
+ * entry count, reserved) followed by 12-byte entries (position key, packed
+ * {@link Move}, unsigned weight) sorted by key, then by weight, highest
+ * first. Keys are {@link ChessGame#positionKey()}, so a position reached by
+ * any move order finds the same entries. Build files with {@link Builder}.
+ * <p>
+ * Reads never modify the mapping, so one book may be shared by any number of
+ * threads.
+ */
+public final class OpeningBook {
+
+    private static final int MAGIC = 0x43424B31;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 12;
+
+    /**
+     * @param move   the book move
+     * @param weight how strongly the book recommends it, relative to the
+     *               other moves from the same position
+     */
+    public record Entry(ChessMove move, int weight) {
+    }
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(ByteBuffer entries, int size) {
+        this.entries = entries;
+        this.size = size;
+    }
+
+    /**
+     * Maps a book file. The file is not read until it is probed.
+     *
+     * @throws IOException if the file can't be mapped or is not a book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel closes
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a version " + VERSION + " opening book: " + file);
+            }
+            int size = buffer.getInt(8);
+            if (size < 0 || (long) size * ENTRY_SIZE != buffer.capacity() - HEADER_SIZE) {
+                throw new IOException("Opening book is truncated: " + file);
+            }
+            return new OpeningBook(buffer, size);
+        }
+    }
+
+    /**
+     * @return how many position and move pairs the book holds
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the book's legal moves in the game's position, highest weight
+     * first; empty once the game has left the book
+     */
+    public List<Entry> entries(ChessGame game) {
+        List<Entry> found = new ArrayList<>();
+        long key = game.positionKey();
+        MoveList legal = null;
+        for (int i = firstIndex(key); i < size && keyAt(i) == key; i++) {
+            if (legal == null) {
+                legal = new MoveList();
+                game.generateValidMoves(game.getTeamTurn(), legal);
+            }
+            int move = moveAt(i);
+            // Guards against a key collision with some unrelated position
+            if (legal.contains(move)) {
+                found.add(new Entry(Move.toChessMove(move), weightAt(i)));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return the book's highest-weighted move, or null if the game is out
+     * of book
+     */
+    public ChessMove bestMove(ChessGame game) {
+        List<Entry> found = entries(game);
+        return found.isEmpty() ? null : found.get(0).move();
+    }
+
+    /**
+     * @return a book move chosen at random in proportion to its weight, so a
+     * bot doesn't play the same opening every game; null if out of book
+     */
+    public ChessMove pickMove(ChessGame game, RandomGenerator random) {
+        List<Entry> found = entries(game);
+        long total = 0;
+        for (Entry entry : found) {
+            total += entry.weight();
+        }
+        if (total == 0) {
+            return found.isEmpty() ? null : found.get(0).move();
+        }
+        long pick = random.nextLong(total);
+        for (Entry entry : found) {
+            pick -= entry.weight();
+            if (pick < 0) {
+                return entry.move();
+            }
+        }
+        return found.get(found.size() - 1).move();
+    }
+
+    /**
+     * @return index of the first entry whose key is not below {@code key}
+     */
+    private int firstIndex(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keyAt(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(int index) {
+        return entries.getLong(HEADER_SIZE + index * ENTRY_SIZE);
+    }
+
+    private int moveAt(int index) {
+        return entries.getShort(HEADER_SIZE + index * ENTRY_SIZE + 8) & 0xFFFF;
+    }
+
+    private int weightAt(int index) {
+        return entries.getShort(HEADER_SIZE + index * ENTRY_SIZE + 10) & 0xFFFF;
+    }
+
+    /**
+     * Collects book moves in memory and writes them out as a sorted book file.
+     * Adding the same move from the same position again adds to its weight,
+     * so feeding in many games weights moves by how often they were played.
+     */
+    public static final class Builder {
+
+        private static final int MAX_WEIGHT = 0xFFFF;
+
+        private record Key(long position, int move) {
+        }
+
+        private final Map<Key, Integer> weights = new HashMap<>();
+
+        /**
+         * @param move a legal move in the game's position, in packed form
+         */
+        public Builder add(ChessGame game, int move, int weight) {
+            return add(game.positionKey(), move, weight);
+        }
+
+        private Builder add(long position, int move, int weight) {
+            weights.merge(new Key(position, move), weight, (a, b) -> Math.min(a + b, MAX_WEIGHT));
+            return this;
+        }
+
+        /**
+         * Adds every move of a line played from the starting position
+         *
+         * @param line moves in coordinate notation separated by spaces, such
+         *             as "e2e4 e7e5 g1f3"
+         * @throws IllegalArgumentException if a move is malformed or illegal
+         */
+        public Builder addLine(String line, int weight) {
+            ChessGame game = new ChessGame();
+            for (String text : line.trim().split("\\s+")) {
+                if (text.isEmpty()) {
+                    continue;
+                }
+                int move = Move.parse(text);
+                long position = game.positionKey();
+                try {
+                    game.makeMove(Move.toChessMove(move));
+                } catch (InvalidMoveException e) {
+                    throw new IllegalArgumentException("Illegal move " + text + " in book line: " + line, e);
+                }
+                add(position, move, weight);
+            }
+            return this;
+        }
+
+        /**
+         * Adds each line of a text listing of opening lines, one line per
+         * opening in coordinate notation, with '#' starting a comment. Each
+         * line adds weight 1 to each of its moves.
+         */
+        public Builder addLines(Iterable<String> lines) {
+            for (String line : lines) {
+                int comment = line.indexOf('#');
+                String moves = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (!moves.isEmpty()) {
+                    addLine(moves, 1);
+                }
+            }
+            return this;
+        }
+
+        public void write(Path file) throws IOException {
+            List<Map.Entry<Key, Integer>> sorted = new ArrayList<>(weights.entrySet());
+            sorted.sort(Comparator.<Map.Entry<Key, Integer>>comparingLong(e -> e.getKey().position())
+                    .thenComparing(Map.Entry::getValue, Comparator.reverseOrder()));
+            try (OutputStream stream = Files.newOutputStream(file);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(sorted.size());
+                out.writeInt(0);
+                for (Map.Entry<Key, Integer> entry : sorted) {
+                    out.writeLong(entry.getKey().position());
+                    out.writeShort(entry.getKey().move());
+                    out.writeShort(entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a book file from a text file of opening lines, see
+     * {@link Builder#addLines}. Usage: {@code OpeningBook <lines.txt> <book.bin>}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: OpeningBook <lines.txt> <book.bin>");
+            System.exit(1);
+        }
+        new Builder().addLines(Files.readAllLines(Path.of(args[0]))).write(Path.of(args[1]));
+        System.out.println("Wrote " + OpeningBook.open(Path.of(args[1])).size() + " entries to " + args[1]);
+    }
+}
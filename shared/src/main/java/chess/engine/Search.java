@@ -0,0 +1,412 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.Move;
+import chess.MoveList;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Iterative-deepening alpha-beta search over a {@link ChessGame}, played out
+ * with makeMoveUnchecked/unmakeMove on the game itself. Each iteration is a
+ * negamax search with a check extension, ending in a captures-only quiescence
+ * search so leaf scores are never taken mid-exchange. Results are kept in a
+ * {@link TranspositionTable}, which cuts off positions already searched deeply
+ * enough and otherwise supplies the move to try first. After that, moves are
+ * tried best line from the previous iteration first, then captures by MVV-LVA
+ * (most valuable victim, least valuable attacker), then killer moves, then
+ * the rest.
+ * <p>
+ * A search owns its game while running and leaves it as it found it. Not
+ * thread-safe; give each thread its own search and game. The table may be
+ * shared, which is how {@link Engine} runs several searches of one position
+ * in parallel: each thread's results land in the table, where the others
+ * pick them up as cutoffs and move ordering.
+ */
+public final class Search {
+
+    /** Score of delivering mate now; mate in n plies scores {@code MATE - n} */
+    public static final int MATE = 30_000;
+    public static final int MAX_PLY = 64;
+
+    private static final int INFINITY = 32_000;
+    /** Check the clock once every this many nodes; must be a power of two */
+    private static final int CLOCK_INTERVAL = 2048;
+
+    private static final int PV_MOVE_SCORE = 1_000_000;
+    private static final int CAPTURE_SCORE = 100_000;
+    private static final int PROMOTION_SCORE = 90_000;
+    private static final int[] KILLER_SCORES = {80_000, 79_000};
+    private static final int UNDERPROMOTION_SCORE = -1;
+    /** MVV-LVA rank by {@link ChessPiece.PieceType} ordinal: pawn 1 up to king 6 */
+    private static final int[] ORDER_RANK = {6, 5, 3, 2, 4, 1};
+
+    private final ChessGame game;
+    private final TranspositionTable table;
+    private final AtomicBoolean stopSignal;
+    private final MoveList[] moves = new MoveList[MAX_PLY];
+    private final int[][] orderScores = new int[MAX_PLY][MoveList.DEFAULT_CAPACITY];
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private final int[] previousPv = new int[MAX_PLY];
+    private int previousPvLength;
+
+    private long nodes;
+    private long deadline;
+    private boolean mayStop;
+    private boolean stopped;
+
+    /**
+     * @param game the position to search; it is played in and restored, so
+     *             pass a copy if anyone else is using it
+     * @param table where to cache results; may be shared with other searches
+     */
+    public Search(ChessGame game, TranspositionTable table) {
+        this(game, table, new AtomicBoolean());
+    }
+
+    /**
+     * @param stopSignal set by another thread to end the search early
+     */
+    Search(ChessGame game, TranspositionTable table, AtomicBoolean stopSignal) {
+        this.game = game;
+        this.table = table;
+        this.stopSignal = stopSignal;
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            moves[ply] = new MoveList();
+        }
+    }
+
+    /**
+     * Searches one ply deeper at a time until the time budget runs out or
+     * {@code maxDepth} is reached. The first iteration always completes, so
+     * there is a move to play however short the budget.
+     *
+     * @param timeBudget how long to search for
+     * @param maxDepth   deepest iteration to start, in plies
+     */
+    public SearchResult search(Duration timeBudget, int maxDepth) {
+        return search(System.nanoTime() + timeBudget.toNanos(), maxDepth, 0, false);
+    }
+
+    /**
+     * @param deadline    {@link System#nanoTime()} at which to stop
+     * @param depthOffset plies to add to every iteration, so parallel helpers
+     *                    work ahead of the main search rather than beside it
+     * @param helper      true if another search supplies the move, so this
+     *                    one may stop before finishing its first iteration
+     */
+    SearchResult search(long deadline, int maxDepth, int depthOffset, boolean helper) {
+        this.deadline = deadline;
+        nodes = 0;
+        stopped = false;
+        previousPvLength = 0;
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = plyKillers[1] = Move.NONE;
+        }
+
+        int score = 0;
+        int completedDepth = 0;
+        maxDepth = Math.min(maxDepth, MAX_PLY - 1);
+        for (int depth = 1 + depthOffset; depth <= maxDepth; depth++) {
+            mayStop = helper || depth > 1;
+            int iterationScore = negamax(depth, 0, -INFINITY, INFINITY);
+            if (stopped) {
+                break;
+            }
+            score = iterationScore;
+            completedDepth = depth;
+            previousPvLength = pvLength[0];
+            System.arraycopy(pv[0], 0, previousPv, 0, previousPvLength);
+            if (previousPvLength == 0 || isMateScore(score) && MATE - Math.abs(score) <= depth
+                    || System.nanoTime() > deadline || stopSignal.get()) {
+                break;
+            }
+        }
+
+        List<ChessMove> line = principalVariation();
+        return new SearchResult(line.isEmpty() ? null : line.get(0), score, completedDepth, nodes, line);
+    }
+
+    /**
+     * The line from the last completed iteration, continued with the table's
+     * best moves where a table cutoff cut it short
+     */
+    private List<ChessMove> principalVariation() {
+        List<ChessMove> line = new ArrayList<>(previousPvLength);
+        for (int i = 0; i < previousPvLength; i++) {
+            line.add(Move.toChessMove(previousPv[i]));
+            game.makeMoveUnchecked(previousPv[i]);
+        }
+        MoveList legal = moves[0];
+        while (line.size() < MAX_PLY - 1 && !line.isEmpty() && game.getRepetitionCount() == 1) {
+            long entry = table.probe(game.positionKey());
+            legal.clear();
+            game.generateValidMoves(game.getTeamTurn(), legal);
+            if (entry == 0 || TranspositionTable.bound(entry) != TranspositionTable.EXACT
+                    || !legal.contains(TranspositionTable.move(entry))) {
+                break;
+            }
+            line.add(Move.toChessMove(TranspositionTable.move(entry)));
+            game.makeMoveUnchecked(TranspositionTable.move(entry));
+        }
+        for (int i = 0; i < line.size(); i++) {
+            game.unmakeMove();
+        }
+        return line;
+    }
+
+    /**
+     * @return true if the score means a forced mate for one side
+     */
+    public static boolean isMateScore(int score) {
+        return Math.abs(score) >= MATE - MAX_PLY;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if (ply > 0 && (game.getHalfmoveClock() >= 100 || game.getRepetitionCount() > 1)) {
+            return 0;
+        }
+        ChessGame.TeamColor us = game.getTeamTurn();
+        boolean inCheck = game.isInCheck(us);
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiesce(ply, alpha, beta);
+        }
+        if (ply >= MAX_PLY - 1) {
+            return Evaluation.evaluate(game.getBoard(), us);
+        }
+        if (countNodeAndCheckClock()) {
+            return 0;
+        }
+
+        long key = game.positionKey();
+        long entry = table.probe(key);
+        int hashMove = Move.NONE;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            // Never cut at the root, which has to produce a move
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int stored = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && stored >= beta
+                        || bound == TranspositionTable.UPPER && stored <= alpha) {
+                    return stored;
+                }
+            }
+        }
+
+        MoveList list = moves[ply];
+        list.clear();
+        game.generateValidMoves(us, list);
+        if (list.isEmpty()) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        int[] scores = scoreMoves(list, ply, hashMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < list.size(); i++) {
+            int move = selectNext(list, scores, i);
+            game.makeMoveUnchecked(move);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            game.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+            }
+            if (score > alpha) {
+                alpha = score;
+                updatePv(ply, move);
+                if (alpha >= beta) {
+                    if (!isCapture(game.getBoard(), move) && !Move.isPromotion(move)) {
+                        storeKiller(ply, move);
+                    }
+                    break;
+                }
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        // A fail-low node has no best move worth keeping
+        table.store(key, bound == TranspositionTable.UPPER ? Move.NONE : bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Mate scores are stored as distance from the stored position rather than
+     * from the root, so they stay right when reached by a different path
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        return score <= -(MATE - MAX_PLY) ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        return score <= -(MATE - MAX_PLY) ? score + ply : score;
+    }
+
+    /**
+     * Searches captures and queen promotions only, so the position is quiet
+     * before it is scored. The side to move may always decline them and take
+     * the static evaluation instead.
+     */
+    private int quiesce(int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if (countNodeAndCheckClock()) {
+            return 0;
+        }
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor us = game.getTeamTurn();
+        int standPat = Evaluation.evaluate(board, us);
+        if (ply >= MAX_PLY - 1 || standPat >= beta) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+
+        MoveList list = moves[ply];
+        list.clear();
+        game.generateValidMoves(us, list);
+        int kept = 0;
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            if (isCapture(board, move) || Move.promotion(move) == ChessPiece.PieceType.QUEEN) {
+                list.set(kept++, move);
+            }
+        }
+        list.truncate(kept);
+        int[] scores = scoreMoves(list, ply, Move.NONE);
+
+        for (int i = 0; i < list.size(); i++) {
+            int move = selectNext(list, scores, i);
+            game.makeMoveUnchecked(move);
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            game.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score >= beta) {
+                return score;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+        }
+        return alpha;
+    }
+
+    private boolean countNodeAndCheckClock() {
+        nodes++;
+        if (mayStop && (nodes & (CLOCK_INTERVAL - 1)) == 0
+                && (System.nanoTime() > deadline || stopSignal.get())) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    private int[] scoreMoves(MoveList list, int ply, int hashMove) {
+        if (orderScores[ply].length < list.size()) {
+            orderScores[ply] = new int[list.size()];
+        }
+        int[] scores = orderScores[ply];
+        ChessBoard board = game.getBoard();
+        int pvMove = ply < previousPvLength ? previousPv[ply] : Move.NONE;
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            int score = 0;
+            if (move == hashMove || move == pvMove) {
+                score = PV_MOVE_SCORE;
+            } else if (isCapture(board, move)) {
+                ChessPiece victim = board.getPiece(Move.to(move));
+                int victimRank = victim == null ? ORDER_RANK[ChessPiece.PieceType.PAWN.ordinal()]
+                        : ORDER_RANK[victim.getPieceType().ordinal()];
+                int attackerRank = ORDER_RANK[board.getPiece(Move.from(move)).getPieceType().ordinal()];
+                score = CAPTURE_SCORE + victimRank * 10 - attackerRank;
+            } else if (Move.isPromotion(move)) {
+                score = Move.promotion(move) == ChessPiece.PieceType.QUEEN ? PROMOTION_SCORE : UNDERPROMOTION_SCORE;
+            } else if (move == killers[ply][0]) {
+                score = KILLER_SCORES[0];
+            } else if (move == killers[ply][1]) {
+                score = KILLER_SCORES[1];
+            }
+            scores[i] = score;
+        }
+        return scores;
+    }
+
+    /**
+     * Swaps the best-scored of the untried moves into slot {@code index}, so
+     * moves are sorted only as far as the search gets before a cutoff
+     */
+    private static int selectNext(MoveList list, int[] scores, int index) {
+        int best = index;
+        for (int i = index + 1; i < list.size(); i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            list.swap(index, best);
+            int score = scores[index];
+            scores[index] = scores[best];
+            scores[best] = score;
+        }
+        return list.get(index);
+    }
+
+    /**
+     * @return true if the move takes a piece, en passant included
+     */
+    private static boolean isCapture(ChessBoard board, int move) {
+        if (board.getPiece(Move.to(move)) != null) {
+            return true;
+        }
+        ChessPiece mover = board.getPiece(Move.from(move));
+        return mover != null && mover.getPieceType() == ChessPiece.PieceType.PAWN
+                && (Move.from(move) & 7) != (Move.to(move) & 7);
+    }
+
+    private void storeKiller(int ply, int move) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        int length = pvLength[ply + 1];
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, length - (ply + 1));
+        pvLength[ply] = Math.max(length, ply + 1);
+    }
+
+    /**
+     * @return positions visited by the last search
+     */
+    public long getNodes() {
+        return nodes;
+    }
+}
@@ -0,0 +1,20 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * Outcome of a search: the move to play, its score and the line the engine
+ * expects to follow.
+ *
+ * @param bestMove  the move to play, or null if the side to move has none
+ * @param score     centipawns from the mover's point of view; see
+ *                  {@link Search#isMateScore(int)}
+ * @param depth     deepest iteration that completed; 0 for a book move
+ * @param nodes     positions visited, quiescence included
+ * @param principalVariation expected line, starting with {@code bestMove}
+ */
+public record SearchResult(ChessMove bestMove, int score, int depth, long nodes,
+                           List<ChessMove> principalVariation) {
+}
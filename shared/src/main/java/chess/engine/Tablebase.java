@@ -0,0 +1,405 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.MoveList;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Perfect play for endings of three and four pieces, kings included: whether
+ * the side to move wins, draws or loses, and how many plies mate takes with
+ * best play from both sides. The server uses it to adjudicate endgames that
+ * would otherwise drag on.
+ * <p>
+ * Tables are solved by {@link Builder} and written to one file, which is
+ * memory-mapped rather than loaded, like an {@link OpeningBook}. Each table
+ * spends one byte per position (see {@code TablebaseIndex} for the layout and
+ * {@code TablebaseGenerator} for the values), so the largest four-piece
+ * tables take under ten megabytes.
+ * <p>
+ * The file is big-endian: a 16-byte header (magic {@code "CTB1"}, version,
+ * table count, reserved), a directory of 16-byte entries (material key,
+ * offset, size), then the tables.
+ * <p>
+ * Tables know nothing of the fifty-move rule, so a "win" may take longer
+ * than fifty moves to force. Positions where either side may still castle
+ * are not covered.
+ */
+public final class Tablebase {
+
+    private static final int MAGIC = 0x43544231;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int DIRECTORY_ENTRY_SIZE = 16;
+    private static final long BACK_RANKS = 0xFF000000000000FFL;
+
+    public enum Outcome {
+        WIN, DRAW, LOSS
+    }
+
+    /**
+     * @param outcome        the result with perfect play, for the side to move
+     * @param distanceToMate plies until mate with perfect play, the loser
+     *                       putting it off as long as it can; 0 for a draw
+     *                       or when the side to move is already mated
+     */
+    public record Result(Outcome outcome, int distanceToMate) {
+
+        private static final Result DRAW = new Result(Outcome.DRAW, 0);
+
+        /**
+         * @return full moves until mate, counting the mating move
+         */
+        public int movesToMate() {
+            return (distanceToMate + 1) / 2;
+        }
+
+        private static Result of(int value) {
+            if (value == TablebaseGenerator.DRAW) {
+                return DRAW;
+            }
+            return new Result((value & 1) == 1 ? Outcome.LOSS : Outcome.WIN, value - 1);
+        }
+
+        /**
+         * @return the result for the other side one ply earlier, had this
+         * been reached by its move
+         */
+        private Result before() {
+            return switch (outcome) {
+                case WIN -> new Result(Outcome.LOSS, distanceToMate + 1);
+                case DRAW -> DRAW;
+                case LOSS -> new Result(Outcome.WIN, distanceToMate + 1);
+            };
+        }
+
+        /**
+         * @return higher for results the side to move prefers
+         */
+        private int rank() {
+            return switch (outcome) {
+                case WIN -> 1000 - distanceToMate;
+                case DRAW -> 0;
+                case LOSS -> distanceToMate - 1000;
+            };
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final Map<Long, TablebaseIndex> layouts;
+    private final Map<Long, Integer> offsets;
+    private final TablebaseGenerator.Tables tables = new TablebaseGenerator.Tables() {
+        @Override
+        public TablebaseIndex layout(long key) {
+            return layouts.get(key);
+        }
+
+        @Override
+        public int value(long key, int index) {
+            return buffer.get(offsets.get(key) + index) & 0xFF;
+        }
+    };
+
+    private Tablebase(ByteBuffer buffer, Map<Long, TablebaseIndex> layouts, Map<Long, Integer> offsets) {
+        this.buffer = buffer;
+        this.layouts = layouts;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Maps a tablebase file. Tables are not read until they are probed.
+     *
+     * @throws IOException if the file can't be mapped or is not a tablebase
+     */
+    public static Tablebase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a version " + VERSION + " tablebase: " + file);
+            }
+            int tables = buffer.getInt(8);
+            if (tables < 0 || HEADER_SIZE + (long) tables * DIRECTORY_ENTRY_SIZE > buffer.capacity()) {
+                throw new IOException("Tablebase directory is truncated: " + file);
+            }
+            Map<Long, TablebaseIndex> layouts = new HashMap<>();
+            Map<Long, Integer> offsets = new HashMap<>();
+            for (int i = 0; i < tables; i++) {
+                int entry = HEADER_SIZE + i * DIRECTORY_ENTRY_SIZE;
+                long key = buffer.getLong(entry);
+                int offset = buffer.getInt(entry + 8);
+                int size = buffer.getInt(entry + 12);
+                TablebaseIndex layout;
+                try {
+                    layout = TablebaseIndex.forKey(key);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Bad table in " + file + ": " + e.getMessage(), e);
+                }
+                if (size != layout.size || offset < 0 || (long) offset + size > buffer.capacity()) {
+                    throw new IOException("Tablebase " + layout.name() + " table is truncated: " + file);
+                }
+                layouts.put(key, layout);
+                offsets.put(key, offset);
+            }
+            return new Tablebase(buffer, layouts, offsets);
+        }
+    }
+
+    /**
+     * @return the materials the file has tables for, such as "KQvKR"
+     */
+    public List<String> materials() {
+        List<String> names = new ArrayList<>();
+        for (TablebaseIndex layout : layouts.values()) {
+            names.add(layout.name());
+        }
+        names.sort(null);
+        return names;
+    }
+
+    /**
+     * @return the game's result with perfect play, or null if the position
+     * has more pieces than the tables hold, or material they don't cover
+     */
+    public Result probe(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        long occupied = board.getOccupancy();
+        int n = Long.bitCount(occupied);
+        if (n > TablebaseIndex.MAX_PIECES || game.getCastlingRights() != 0) {
+            return null;
+        }
+        long pawns = board.getPieceSet(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN)
+                | board.getPieceSet(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+        if ((pawns & BACK_RANKS) != 0) {
+            return null;
+        }
+        if (game.getEnPassantPosition() != null) {
+            // The tables assume no en passant capture, so look one move on
+            return probeMoves(game);
+        }
+
+        int[] pieces = new int[n];
+        int[] squares = new int[n];
+        int i = 0;
+        for (long bits = occupied; bits != 0; bits &= bits - 1) {
+            int square = Long.numberOfTrailingZeros(bits);
+            ChessPiece piece = board.getPiece(square);
+            pieces[i] = Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+            squares[i++] = square;
+        }
+        int value = tables.value(pieces, squares, n, game.getTeamTurn() == ChessGame.TeamColor.WHITE ? 0 : 1);
+        return value < 0 ? null : Result.of(value);
+    }
+
+    private Result probeMoves(ChessGame game) {
+        ChessGame copy = game.copy();
+        MoveList moves = new MoveList();
+        copy.generateValidMoves(copy.getTeamTurn(), moves);
+        if (moves.isEmpty()) {
+            return copy.isInCheck(copy.getTeamTurn()) ? new Result(Outcome.LOSS, 0) : Result.DRAW;
+        }
+        Result best = null;
+        for (int i = 0; i < moves.size(); i++) {
+            copy.makeMoveUnchecked(moves.get(i));
+            Result after = probe(copy);
+            copy.unmakeMove();
+            if (after == null) {
+                return null;
+            }
+            Result result = after.before();
+            if (best == null || result.rank() > best.rank()) {
+                best = result;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Solves tables in memory and writes them out as a tablebase file. Adding
+     * a table adds every smaller one it leads into by a capture or
+     * promotion, since it can't be solved without them.
+     */
+    public static final class Builder {
+
+        private static final int PIECE_KINDS = 12;
+
+        private final Map<Long, TablebaseIndex> layouts = new HashMap<>();
+        private final Map<Long, byte[]> tables = new LinkedHashMap<>();
+        private final TablebaseGenerator.Tables solved = new TablebaseGenerator.Tables() {
+            @Override
+            public TablebaseIndex layout(long key) {
+                return layouts.get(key);
+            }
+
+            @Override
+            public int value(long key, int index) {
+                return tables.get(key)[index] & 0xFF;
+            }
+        };
+
+        /**
+         * @param material the pieces on each side, such as "KQvKR" or "KvKP"
+         * @throws IllegalArgumentException if the material is malformed or
+         *                                  not three or four pieces with one king each
+         */
+        public Builder add(String material) {
+            solve(TablebaseIndex.forKey(TablebaseIndex.parse(material)));
+            return this;
+        }
+
+        /**
+         * Adds the table for every material of up to {@code pieces} pieces
+         */
+        public Builder addAll(int pieces) {
+            if (pieces < 3 || pieces > TablebaseIndex.MAX_PIECES) {
+                throw new IllegalArgumentException("Tables hold 3 to " + TablebaseIndex.MAX_PIECES
+                        + " pieces, not " + pieces);
+            }
+            int[] material = new int[pieces];
+            material[1] = 6;
+            addAll(material, 2, 1);
+            return this;
+        }
+
+        private void addAll(int[] material, int next, int firstKind) {
+            if (next > 2) {
+                int[] pieces = material.clone();
+                TablebaseIndex.normalize(pieces, new int[next], next, 0);
+                solve(TablebaseIndex.forKey(TablebaseIndex.key(pieces, next)));
+            }
+            if (next == material.length) {
+                return;
+            }
+            for (int kind = firstKind; kind < PIECE_KINDS; kind++) {
+                if (kind != 6) {
+                    material[next] = kind;
+                    addAll(material, next + 1, kind);
+                }
+            }
+        }
+
+        /**
+         * @return the materials solved so far, smallest first
+         */
+        public List<String> materials() {
+            List<String> names = new ArrayList<>();
+            for (long key : tables.keySet()) {
+                names.add(TablebaseIndex.name(key));
+            }
+            return names;
+        }
+
+        public void write(Path file) throws IOException {
+            try (OutputStream stream = Files.newOutputStream(file);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(tables.size());
+                out.writeInt(0);
+                long offset = HEADER_SIZE + (long) tables.size() * DIRECTORY_ENTRY_SIZE;
+                for (Map.Entry<Long, byte[]> table : tables.entrySet()) {
+                    if (offset + table.getValue().length > Integer.MAX_VALUE) {
+                        throw new IOException("Tablebase would be too large to map");
+                    }
+                    out.writeLong(table.getKey());
+                    out.writeInt((int) offset);
+                    out.writeInt(table.getValue().length);
+                    offset += table.getValue().length;
+                }
+                for (byte[] table : tables.values()) {
+                    out.write(table);
+                }
+            }
+        }
+
+        private void solve(TablebaseIndex layout) {
+            if (tables.containsKey(layout.key)) {
+                return;
+            }
+            for (long smaller : successors(layout)) {
+                solve(TablebaseIndex.forKey(smaller));
+            }
+            layouts.put(layout.key, layout);
+            tables.put(layout.key, new TablebaseGenerator(layout, solved).generate());
+        }
+
+        /**
+         * @return keys of the tables of three or more pieces that a capture or
+         * promotion leads into
+         */
+        private static List<Long> successors(TablebaseIndex layout) {
+            List<Long> keys = new ArrayList<>();
+            int n = layout.count;
+            for (int i = 0; i < n; i++) {
+                int piece = layout.pieces[i];
+                if (piece % 6 == 0) {
+                    continue;
+                }
+                addSuccessor(keys, layout.pieces, i, -1, -1);
+                if (layout.isPawnAt(i)) {
+                    for (int promoted = 1; promoted <= 4; promoted++) {
+                        int promotedPiece = piece / 6 * 6 + promoted;
+                        addSuccessor(keys, layout.pieces, -1, i, promotedPiece);
+                        for (int j = 0; j < n; j++) {
+                            if (layout.pieces[j] / 6 != piece / 6 && layout.pieces[j] % 6 != 0) {
+                                addSuccessor(keys, layout.pieces, j, i, promotedPiece);
+                            }
+                        }
+                    }
+                }
+            }
+            return keys;
+        }
+
+        private static void addSuccessor(List<Long> keys, int[] pieces, int removed, int replaced, int replacement) {
+            int[] after = new int[pieces.length];
+            int m = 0;
+            for (int i = 0; i < pieces.length; i++) {
+                if (i != removed) {
+                    after[m++] = i == replaced ? replacement : pieces[i];
+                }
+            }
+            if (m > 2) {
+                TablebaseIndex.normalize(after, new int[m], m, 0);
+                keys.add(TablebaseIndex.key(after, m));
+            }
+        }
+    }
+
+    /**
+     * Solves tables and writes them to a file. Usage:
+     * {@code Tablebase <tables.bin> <material or piece count>...}, such as
+     * {@code Tablebase tables.bin 3 KQvKR}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: Tablebase <tables.bin> <material or piece count>...");
+            System.exit(1);
+        }
+        Builder builder = new Builder();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].chars().allMatch(Character::isDigit)) {
+                builder.addAll(Integer.parseInt(args[i]));
+            } else {
+                builder.add(args[i]);
+            }
+        }
+        builder.write(Path.of(args[0]));
+        System.out.println("Wrote " + String.join(", ", builder.materials()) + " to " + args[0]);
+    }
+}
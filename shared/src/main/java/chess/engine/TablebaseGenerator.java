@@ -0,0 +1,375 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+/**
+ * Solves one endgame table by retrograde analysis, given the tables of every
+ * material it can reach by a capture or promotion.
+ * <p>
+ * Each position's value is a byte: 0 for a draw (or an illegal position),
+ * otherwise the distance to mate in plies plus one. Mates take an even
+ * number of plies from the loser's side and an odd number from the winner's,
+ * so an odd byte is a loss for the side to move and an even one a win.
+ * <p>
+ * The first pass generates every position's moves once. Mates are lost at
+ * distance 0; moves that leave the table are scored straight from the
+ * smaller tables; moves within it are counted. Each later pass n takes the
+ * positions settled at distance n-1 and walks their moves backward: a
+ * predecessor of a lost position is won at distance n, and a predecessor of
+ * a won one has one fewer unsettled move, and is lost once it has none left
+ * and no escape into a smaller table. Positions still unsettled at the end
+ * are draws.
+ * <p>
+ * Counts are kept per distinct neighbouring position rather than per move,
+ * because with mirror images sharing an index, two moves may lead to the
+ * same table position, and a symmetrical position may be reached by more of
+ * its neighbour's unmoves than the neighbour has moves into it.
+ * <p>
+ * En passant is ignored: a double pawn step is scored as though it could not
+ * be taken en passant, which can only matter with a pawn on each side.
+ */
+final class TablebaseGenerator {
+
+    /** Value byte of a draw */
+    static final int DRAW = 0;
+
+    /** Tables to score moves that change the material with */
+    interface Tables {
+
+        /**
+         * @return the table for the material, or null if there is none
+         */
+        TablebaseIndex layout(long key);
+
+        /**
+         * @return the value byte of the position at {@code index} in the
+         * table for the material
+         */
+        int value(long key, int index);
+
+        /**
+         * Scores a position given as pieces and squares in any order, either
+         * side stronger. Works in place on the first {@code n} entries.
+         *
+         * @param stm the side to move, 0 for white
+         * @return the position's value byte, or -1 if there is no table for it
+         */
+        default int value(int[] pieces, int[] squares, int n, int stm) {
+            if (n == 2) {
+                // Two bare kings, or else not a position at all
+                return TablebaseIndex.key(pieces, n) == BARE_KINGS ? DRAW : -1;
+            }
+            stm = TablebaseIndex.normalize(pieces, squares, n, stm);
+            long key = TablebaseIndex.key(pieces, n);
+            TablebaseIndex layout = layout(key);
+            return layout == null ? -1 : value(key, layout.index(squares, stm));
+        }
+    }
+
+    private static final long BARE_KINGS = TablebaseIndex.key(new int[]{0, 6}, 2);
+    private static final byte ILLEGAL = -1;
+    /** Highest distance a value byte can hold */
+    private static final int MAX_DISTANCE = 254;
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT};
+    private static final ChessPiece.PieceType[] NO_PROMOTION = {null};
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+
+    private final TablebaseIndex layout;
+    private final Tables tables;
+    private final int n;
+    private final int[] color;
+    private final ChessPiece.PieceType[] type;
+    private final int[] kingSlot = new int[2];
+
+    /** Value byte of each position once settled, 0 until then */
+    private final byte[] result;
+    /** Unsettled distinct moves within the table, plus one if a move out of it doesn't lose */
+    private final byte[] count;
+    /** Distance a move out of the table wins at (odd), or the longest it loses at (even) */
+    private final byte[] floor;
+
+    private final int[] squares = new int[TablebaseIndex.MAX_PIECES];
+    private final int[] moved = new int[TablebaseIndex.MAX_PIECES];
+    private final int[] exitPieces = new int[TablebaseIndex.MAX_PIECES];
+    private final int[] exitSquares = new int[TablebaseIndex.MAX_PIECES];
+    private final int[] neighbours = new int[64 * TablebaseIndex.MAX_PIECES];
+    private int neighbourCount;
+
+    TablebaseGenerator(TablebaseIndex layout, Tables tables) {
+        this.layout = layout;
+        this.tables = tables;
+        n = layout.count;
+        color = new int[n];
+        type = new ChessPiece.PieceType[n];
+        for (int i = 0; i < n; i++) {
+            color[i] = layout.pieces[i] / 6;
+            type[i] = TYPES[layout.pieces[i] % 6];
+            if (type[i] == ChessPiece.PieceType.KING) {
+                kingSlot[color[i]] = i;
+            }
+        }
+        result = new byte[layout.size];
+        count = new byte[layout.size];
+        floor = new byte[layout.size];
+    }
+
+    /**
+     * @return the value byte of every position in the table
+     * @throws IllegalStateException if a table this one leads into is missing
+     */
+    byte[] generate() {
+        int maxFloor = 0;
+        for (int i = 0; i < layout.size; i++) {
+            maxFloor = Math.max(maxFloor, scoreMoves(i));
+        }
+        for (int distance = 1; ; distance++) {
+            if (distance > MAX_DISTANCE) {
+                throw new IllegalStateException(layout.name() + " has mates longer than " + MAX_DISTANCE + " plies");
+            }
+            boolean settled = false;
+            for (int i = 0; i < layout.size; i++) {
+                int value = result[i] & 0xFF;
+                if (value == distance) {
+                    settled |= settlePredecessors(i, distance);
+                } else if (value == 0 && count[i] != ILLEGAL && (floor[i] & 0xFF) == distance
+                        && ((distance & 1) == 1 || count[i] == 0)) {
+                    result[i] = (byte) (distance + 1);
+                    settled = true;
+                }
+            }
+            if (!settled && distance >= maxFloor) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * First pass over one position: marks it illegal, mated, or counts its
+     * moves and scores those that leave the table
+     *
+     * @return the position's floor
+     */
+    private int scoreMoves(int index) {
+        int stm = layout.decode(index, squares);
+        if (!isLegal(stm, index)) {
+            count[index] = ILLEGAL;
+            return 0;
+        }
+        long occupied = occupancy();
+        long own = 0;
+        for (int i = 0; i < n; i++) {
+            if (color[i] == stm) {
+                own |= Bitboards.bit(squares[i]);
+            }
+        }
+        neighbourCount = 0;
+        boolean anyMove = false;
+        int exitWin = 0;
+        int exitLoss = 0;
+        boolean exitHolds = false;
+        int promotionRow = stm == 0 ? 7 : 0;
+        for (int p = 0; p < n; p++) {
+            if (color[p] != stm) {
+                continue;
+            }
+            int from = squares[p];
+            long targets;
+            if (type[p] == ChessPiece.PieceType.PAWN) {
+                int step = stm == 0 ? 8 : -8;
+                targets = Bitboards.pawnAttacks(COLORS[stm], from) & occupied & ~own;
+                if ((occupied & Bitboards.bit(from + step)) == 0) {
+                    targets |= Bitboards.bit(from + step);
+                    int startRow = stm == 0 ? 1 : 6;
+                    if (from >>> 3 == startRow && (occupied & Bitboards.bit(from + 2 * step)) == 0) {
+                        targets |= Bitboards.bit(from + 2 * step);
+                    }
+                }
+            } else {
+                targets = Bitboards.attacks(COLORS[stm], type[p], from, occupied) & ~own;
+            }
+            for (; targets != 0; targets &= targets - 1) {
+                int to = Long.numberOfTrailingZeros(targets);
+                int captured = pieceOn(to);
+                if (!isSafeAfter(stm, p, to, captured, occupied)) {
+                    continue;
+                }
+                anyMove = true;
+                boolean promotion = type[p] == ChessPiece.PieceType.PAWN && to >>> 3 == promotionRow;
+                if (captured < 0 && !promotion) {
+                    System.arraycopy(squares, 0, moved, 0, n);
+                    moved[p] = to;
+                    addNeighbour(layout.index(moved, stm ^ 1));
+                    continue;
+                }
+                for (ChessPiece.PieceType promoted : promotion ? PROMOTIONS : NO_PROMOTION) {
+                    int value = exitValue(p, to, captured, promoted, stm);
+                    if (value == DRAW) {
+                        exitHolds = true;
+                    } else if ((value & 1) == 1) {
+                        // The opponent is lost in value - 1 plies, so this wins in value
+                        exitWin = exitWin == 0 ? value : Math.min(exitWin, value);
+                    } else {
+                        exitLoss = Math.max(exitLoss, value);
+                    }
+                }
+            }
+        }
+        if (!anyMove) {
+            if (isAttacked(squares[kingSlot[stm]], stm ^ 1, occupied, -1)) {
+                result[index] = 1;
+            }
+            return 0;
+        }
+        count[index] = (byte) (neighbourCount + (exitHolds || exitWin != 0 ? 1 : 0));
+        int exitFloor = exitWin != 0 ? exitWin : exitLoss;
+        floor[index] = (byte) exitFloor;
+        return exitFloor;
+    }
+
+    /**
+     * Later pass: walks the moves into a position settled at
+     * {@code distance - 1} backward
+     *
+     * @return whether any predecessor was settled
+     */
+    private boolean settlePredecessors(int index, int distance) {
+        int stm = layout.decode(index, squares);
+        int mover = stm ^ 1;
+        long occupied = occupancy();
+        neighbourCount = 0;
+        for (int p = 0; p < n; p++) {
+            if (color[p] != mover) {
+                continue;
+            }
+            int from = squares[p];
+            long origins;
+            if (type[p] == ChessPiece.PieceType.PAWN) {
+                // Pawns only step back, and never onto their first rank
+                int step = mover == 0 ? -8 : 8;
+                int row = from >>> 3;
+                origins = 0;
+                if ((mover == 0 ? row >= 2 : row <= 5) && (occupied & Bitboards.bit(from + step)) == 0) {
+                    origins |= Bitboards.bit(from + step);
+                    int doubleStepRow = mover == 0 ? 3 : 4;
+                    if (row == doubleStepRow && (occupied & Bitboards.bit(from + 2 * step)) == 0) {
+                        origins |= Bitboards.bit(from + 2 * step);
+                    }
+                }
+            } else {
+                // Non-captures only: a capture would have come from a bigger table
+                origins = Bitboards.attacks(COLORS[mover], type[p], from, occupied) & ~occupied;
+            }
+            for (; origins != 0; origins &= origins - 1) {
+                System.arraycopy(squares, 0, moved, 0, n);
+                moved[p] = Long.numberOfTrailingZeros(origins);
+                int predecessor = layout.index(moved, mover);
+                if (count[predecessor] != ILLEGAL && result[predecessor] == 0) {
+                    addNeighbour(predecessor);
+                }
+            }
+        }
+
+        boolean settled = false;
+        boolean lost = (distance & 1) == 1;
+        for (int i = 0; i < neighbourCount; i++) {
+            int predecessor = neighbours[i];
+            if (lost) {
+                result[predecessor] = (byte) (distance + 1);
+                settled = true;
+            } else if (--count[predecessor] == 0 && (floor[predecessor] & 0xFF) <= distance) {
+                result[predecessor] = (byte) (distance + 1);
+                settled = true;
+            }
+        }
+        return settled;
+    }
+
+    private boolean isLegal(int stm, int index) {
+        long occupied = 0;
+        for (int i = 0; i < n; i++) {
+            long bit = Bitboards.bit(squares[i]);
+            if ((occupied & bit) != 0) {
+                return false;
+            }
+            occupied |= bit;
+        }
+        // The side that just moved can't have left its king in check
+        if (isAttacked(squares[kingSlot[stm ^ 1]], stm, occupied, -1)) {
+            return false;
+        }
+        // Only one of a set of mirror images is stored
+        System.arraycopy(squares, 0, moved, 0, n);
+        return layout.index(moved, stm) == index;
+    }
+
+    private boolean isSafeAfter(int stm, int p, int to, int captured, long occupied) {
+        int from = squares[p];
+        squares[p] = to;
+        boolean safe = !isAttacked(squares[kingSlot[stm]], stm ^ 1,
+                occupied & ~Bitboards.bit(from) | Bitboards.bit(to), captured);
+        squares[p] = from;
+        return safe;
+    }
+
+    private boolean isAttacked(int square, int attacker, long occupied, int skip) {
+        for (int i = 0; i < n; i++) {
+            if (i != skip && color[i] == attacker
+                    && (Bitboards.attacks(COLORS[attacker], type[i], squares[i], occupied) & Bitboards.bit(square)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the value byte of a capture or promotion, from the smaller table
+     */
+    private int exitValue(int p, int to, int captured, ChessPiece.PieceType promoted, int stm) {
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == captured) {
+                continue;
+            }
+            exitPieces[m] = i == p && promoted != null
+                    ? Bitboards.pieceIndex(COLORS[stm], promoted) : layout.pieces[i];
+            exitSquares[m++] = i == p ? to : squares[i];
+        }
+        int value = tables.value(exitPieces, exitSquares, m, stm ^ 1);
+        if (value < 0) {
+            throw new IllegalStateException(layout.name() + " needs the "
+                    + TablebaseIndex.name(TablebaseIndex.key(exitPieces, m)) + " table");
+        }
+        return value;
+    }
+
+    private long occupancy() {
+        long occupied = 0;
+        for (int i = 0; i < n; i++) {
+            occupied |= Bitboards.bit(squares[i]);
+        }
+        return occupied;
+    }
+
+    private int pieceOn(int square) {
+        for (int i = 0; i < n; i++) {
+            if (squares[i] == square) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void addNeighbour(int index) {
+        for (int i = 0; i < neighbourCount; i++) {
+            if (neighbours[i] == index) {
+                return;
+            }
+        }
+        neighbours[neighbourCount++] = index;
+    }
+}
@@ -0,0 +1,346 @@
+package chess.engine;
+
+import chess.ChessPiece;
+
+import java.util.Arrays;
+
+/**
+ * Layout of one endgame table: the pieces it holds and where each position
+ * sits in it. Pieces are listed in {@link chess.Bitboards#pieceIndex} order,
+ * so the white king always comes first and the black king after the white
+ * pieces.
+ * <p>
+ * A table always has the stronger side as white; a position where black is
+ * stronger is looked up with the board turned around and the colors
+ * swapped. Positions that are mirror images of each other share an index:
+ * without pawns the white king is moved into the a1-d1-d4 triangle by up to
+ * eight reflections, and with pawns, which only move one way, onto files a
+ * to d by a left-right mirror. Pawns can only stand on 48 squares, so they
+ * take 48 slots rather than 64.
+ * <p>
+ * An index is {@code stm, white king, other pieces...} read as digits, with
+ * the side to move (0 for white) most significant.
+ */
+final class TablebaseIndex {
+
+    /** Most pieces a table may hold, kings included */
+    static final int MAX_PIECES = 4;
+
+    private static final int PIECE_KINDS = 12;
+    private static final int WHITE_KING = 0;
+    private static final int BLACK_KING = 6;
+    private static final int PAWN = ChessPiece.PieceType.PAWN.ordinal();
+    /** Letters by PieceType ordinal */
+    private static final String LETTERS = "KQBNRP";
+    /** Order pieces are named in, strongest first */
+    private static final String NAME_ORDER = "KQRBNP";
+
+    private static final int TRIANGLE_SLOTS = 10;
+    private static final int PAWN_KING_SLOTS = 32;
+    private static final int[] TRIANGLE_SLOT = new int[64];
+    private static final int[] TRIANGLE_SQUARE = new int[TRIANGLE_SLOTS];
+
+    static {
+        Arrays.fill(TRIANGLE_SLOT, -1);
+        int slot = 0;
+        for (int row = 0; row < 4; row++) {
+            for (int col = row; col < 4; col++) {
+                TRIANGLE_SLOT[row * 8 + col] = slot;
+                TRIANGLE_SQUARE[slot++] = row * 8 + col;
+            }
+        }
+    }
+
+    /** Piece indices of the pieces, ascending */
+    final int[] pieces;
+    /** Number of pieces */
+    final int count;
+    final boolean pawns;
+    /** Number of positions, legal or not */
+    final int size;
+    final long key;
+    private final int kingSlots;
+
+    private TablebaseIndex(int[] pieces) {
+        this.pieces = pieces;
+        count = pieces.length;
+        boolean anyPawns = false;
+        for (int piece : pieces) {
+            anyPawns |= isPawn(piece);
+        }
+        pawns = anyPawns;
+        kingSlots = pawns ? PAWN_KING_SLOTS : TRIANGLE_SLOTS;
+        long positions = 2L * kingSlots;
+        for (int i = 1; i < count; i++) {
+            positions *= isPawn(pieces[i]) ? 48 : 64;
+        }
+        size = (int) positions;
+        key = key(pieces, count);
+    }
+
+    /**
+     * @param key a key from {@link #key}
+     * @throws IllegalArgumentException unless the key is of two kings and one
+     *                                  or two other pieces, the stronger side white
+     */
+    static TablebaseIndex forKey(long key) {
+        int[] counts = counts(key);
+        int total = 0;
+        for (int c : counts) {
+            total += c;
+        }
+        if (counts[WHITE_KING] != 1 || counts[BLACK_KING] != 1 || total < 3 || total > MAX_PIECES) {
+            throw new IllegalArgumentException("Tables hold two kings and 1 to " + (MAX_PIECES - 2)
+                    + " other pieces, not " + name(key));
+        }
+        if (blackIsStronger(counts)) {
+            throw new IllegalArgumentException("Tables have the stronger side white, not " + name(key));
+        }
+        int[] pieces = new int[total];
+        int next = 0;
+        for (int piece = 0; piece < PIECE_KINDS; piece++) {
+            for (int i = 0; i < counts[piece]; i++) {
+                pieces[next++] = piece;
+            }
+        }
+        return new TablebaseIndex(pieces);
+    }
+
+    /**
+     * @param material pieces in the usual notation, such as "KQvKR"; either
+     *                 side may be the stronger
+     * @return the key of the table holding that material
+     * @throws IllegalArgumentException if the text is malformed
+     */
+    static long parse(String material) {
+        String[] sides = material.trim().toUpperCase().split("V");
+        if (sides.length != 2) {
+            throw new IllegalArgumentException("Material should look like KQvKR, not " + material);
+        }
+        int[] counts = new int[PIECE_KINDS];
+        for (int color = 0; color < 2; color++) {
+            for (char letter : sides[color].toCharArray()) {
+                int type = LETTERS.indexOf(letter);
+                if (type < 0) {
+                    throw new IllegalArgumentException("Unknown piece " + letter + " in " + material);
+                }
+                counts[color * 6 + type]++;
+            }
+        }
+        if (blackIsStronger(counts)) {
+            counts = swapColors(counts);
+        }
+        return key(counts);
+    }
+
+    /**
+     * @return a key naming the material of the first {@code n} pieces,
+     * whatever their order
+     */
+    static long key(int[] pieces, int n) {
+        long key = 0;
+        for (int i = 0; i < n; i++) {
+            key += 1L << (pieces[i] * 4);
+        }
+        return key;
+    }
+
+    private static long key(int[] counts) {
+        long key = 0;
+        for (int piece = 0; piece < PIECE_KINDS; piece++) {
+            key |= (long) counts[piece] << (piece * 4);
+        }
+        return key;
+    }
+
+    private static int[] counts(long key) {
+        int[] counts = new int[PIECE_KINDS];
+        for (int piece = 0; piece < PIECE_KINDS; piece++) {
+            counts[piece] = (int) (key >>> (piece * 4)) & 0xF;
+        }
+        return counts;
+    }
+
+    /**
+     * @return the material in the usual notation, such as "KQvKR"
+     */
+    static String name(long key) {
+        int[] counts = counts(key);
+        StringBuilder sb = new StringBuilder();
+        for (int color = 0; color < 2; color++) {
+            if (color == 1) {
+                sb.append('v');
+            }
+            for (char letter : NAME_ORDER.toCharArray()) {
+                sb.append(String.valueOf(letter).repeat(counts[color * 6 + LETTERS.indexOf(letter)]));
+            }
+        }
+        return sb.toString();
+    }
+
+    String name() {
+        return name(key);
+    }
+
+    private static boolean blackIsStronger(int[] counts) {
+        int white = 0;
+        int black = 0;
+        for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+            if (type != ChessPiece.PieceType.KING) {
+                white += counts[type.ordinal()] * Evaluation.value(type);
+                black += counts[6 + type.ordinal()] * Evaluation.value(type);
+            }
+        }
+        if (white != black) {
+            return black > white;
+        }
+        for (int type = 1; type < 6; type++) {
+            if (counts[type] != counts[6 + type]) {
+                return counts[6 + type] > counts[type];
+            }
+        }
+        return false;
+    }
+
+    private static int[] swapColors(int[] counts) {
+        int[] swapped = new int[PIECE_KINDS];
+        for (int piece = 0; piece < PIECE_KINDS; piece++) {
+            swapped[(piece + 6) % PIECE_KINDS] = counts[piece];
+        }
+        return swapped;
+    }
+
+    /**
+     * Puts a position into table form: if black is the stronger side the
+     * board is turned around and the colors swapped, and the pieces are then
+     * sorted into table order. Works in place on the first {@code n} entries.
+     *
+     * @param stm the side to move, 0 for white
+     * @return the side to move in table form
+     */
+    static int normalize(int[] pieces, int[] squares, int n, int stm) {
+        int[] counts = new int[PIECE_KINDS];
+        for (int i = 0; i < n; i++) {
+            counts[pieces[i]]++;
+        }
+        if (blackIsStronger(counts)) {
+            for (int i = 0; i < n; i++) {
+                pieces[i] = (pieces[i] + 6) % PIECE_KINDS;
+                squares[i] ^= 56;
+            }
+            stm ^= 1;
+        }
+        for (int i = 1; i < n; i++) {
+            int piece = pieces[i];
+            int square = squares[i];
+            int j = i - 1;
+            for (; j >= 0 && (pieces[j] > piece || pieces[j] == piece && squares[j] > square); j--) {
+                pieces[j + 1] = pieces[j];
+                squares[j + 1] = squares[j];
+            }
+            pieces[j + 1] = piece;
+            squares[j + 1] = square;
+        }
+        return stm;
+    }
+
+    /**
+     * @param squares squares of the table's pieces, in table order; reflected
+     *                in place into the position's canonical form
+     * @param stm     the side to move, 0 for white
+     * @return the position's index
+     */
+    int index(int[] squares, int stm) {
+        int king = squares[0];
+        int mask = (king & 7) > 3 ? 7 : 0;
+        if (!pawns && king >>> 3 > 3) {
+            mask |= 56;
+        }
+        if (mask != 0) {
+            for (int i = 0; i < count; i++) {
+                squares[i] ^= mask;
+            }
+        }
+        if (!pawns) {
+            king = squares[0];
+            int row = king >>> 3;
+            int col = king & 7;
+            if (row > col) {
+                transpose(squares);
+            } else if (row == col) {
+                // Both the position and its reflection in the diagonal have
+                // the king in the triangle; take whichever indexes lower
+                sortRuns(squares);
+                int straight = rawIndex(squares, stm);
+                transpose(squares);
+                sortRuns(squares);
+                int reflected = rawIndex(squares, stm);
+                if (straight <= reflected) {
+                    transpose(squares);
+                    sortRuns(squares);
+                    return straight;
+                }
+                return reflected;
+            }
+        }
+        sortRuns(squares);
+        return rawIndex(squares, stm);
+    }
+
+    /**
+     * @param squares receives the squares of the table's pieces
+     * @return the side to move, 0 for white
+     */
+    int decode(int index, int[] squares) {
+        for (int i = count - 1; i > 0; i--) {
+            if (isPawn(pieces[i])) {
+                squares[i] = index % 48 + 8;
+                index /= 48;
+            } else {
+                squares[i] = index % 64;
+                index /= 64;
+            }
+        }
+        int slot = index % kingSlots;
+        squares[0] = pawns ? (slot >>> 2) * 8 + (slot & 3) : TRIANGLE_SQUARE[slot];
+        return index / kingSlots;
+    }
+
+    boolean isPawnAt(int i) {
+        return isPawn(pieces[i]);
+    }
+
+    private static boolean isPawn(int piece) {
+        return piece % 6 == PAWN;
+    }
+
+    private int rawIndex(int[] squares, int stm) {
+        int king = squares[0];
+        int index = stm * kingSlots + (pawns ? (king >>> 3) * 4 + (king & 7) : TRIANGLE_SLOT[king]);
+        for (int i = 1; i < count; i++) {
+            index = isPawn(pieces[i]) ? index * 48 + squares[i] - 8 : index * 64 + squares[i];
+        }
+        return index;
+    }
+
+    private void transpose(int[] squares) {
+        for (int i = 0; i < count; i++) {
+            squares[i] = (squares[i] & 7) << 3 | squares[i] >>> 3;
+        }
+    }
+
+    /**
+     * Sorts the squares of identical pieces, so the same position is indexed
+     * the same whichever of them is which
+     */
+    private void sortRuns(int[] squares) {
+        for (int i = 1; i < count; i++) {
+            int square = squares[i];
+            int j = i - 1;
+            for (; j >= 0 && pieces[j] == pieces[i] && squares[j] > square; j--) {
+                squares[j + 1] = squares[j];
+            }
+            squares[j + 1] = square;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size cache of search results keyed by {@link chess.ChessGame#positionKey()},
+ * held in one {@code long[]} so it costs no objects however large it is.
+ * <p>
+ * Each entry is two longs: the entry's data, and its key XORed with that
+ * data. A reader accepts an entry only if the XOR of the pair gives back the
+ * key it asked for, so an entry half-written by another thread reads as a
+ * miss rather than as a wrong result. That makes the table safe to share
+ * between search threads with no locks at all.
+ * <p>
+ * Entries sit in buckets of four, 64 bytes, one cache line. A store goes to
+ * the entry that already holds the position if there is one, and otherwise
+ * replaces the least useful entry: one left by an older search first, then
+ * the shallowest.
+ */
+public final class TranspositionTable {
+
+    public static final int DEFAULT_MEGABYTES = 16;
+
+    /** Score is exact */
+    public static final int EXACT = 1;
+    /** Score is a lower bound: the search failed high */
+    public static final int LOWER = 2;
+    /** Score is an upper bound: the search failed low */
+    public static final int UPPER = 3;
+
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int LONGS_PER_ENTRY = 2;
+    private static final int BYTES_PER_ENTRY = LONGS_PER_ENTRY * Long.BYTES;
+    /** Arrays top out just under 2^31 elements */
+    private static final long MAX_ENTRIES = 1L << 29;
+
+    // data layout: move 0..15, score 16..31, depth 32..39, bound 40..41, generation 42..49
+    private static final int SCORE_SHIFT = 16;
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int GENERATION_SHIFT = 42;
+
+    private final long[] table;
+    private final int bucketMask;
+    private volatile int generation;
+
+    /**
+     * @param megabytes memory to use; rounded down to a power-of-two number
+     *                  of entries, at least one bucket
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Transposition table needs at least 1 MB, not " + megabytes);
+        }
+        long entries = Math.min((long) megabytes * 1024 * 1024 / BYTES_PER_ENTRY, MAX_ENTRIES);
+        int buckets = (int) Long.highestOneBit(entries / BUCKET_ENTRIES);
+        table = new long[buckets * BUCKET_ENTRIES * LONGS_PER_ENTRY];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * Marks the start of a new search, so entries from earlier ones are
+     * replaced first. Call once per search, not once per thread.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0L);
+        generation = 0;
+    }
+
+    /**
+     * @return the data stored for the position, to be read with the static
+     * accessors, or 0 if there is none
+     */
+    public long probe(long key) {
+        int base = bucketStart(key);
+        for (int i = 0; i < BUCKET_ENTRIES * LONGS_PER_ENTRY; i += LONGS_PER_ENTRY) {
+            long data = table[base + i];
+            if ((table[base + i + 1] ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * @param move  best or refutation move, in packed {@link chess.Move} form,
+     *              or {@link chess.Move#NONE}
+     * @param score score to store, already adjusted for distance to mate
+     * @param depth remaining depth the score was searched to
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int base = bucketStart(key);
+        int current = generation;
+        int victim = base;
+        int victimWorth = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET_ENTRIES * LONGS_PER_ENTRY; i += LONGS_PER_ENTRY) {
+            long data = table[base + i];
+            if ((table[base + i + 1] ^ data) == key) {
+                // Keep a known best move if this search found none
+                if (move == 0) {
+                    move = move(data);
+                }
+                victim = base + i;
+                break;
+            }
+            // Entries from old searches are worth less the older they are
+            int age = (current - generation(data)) & 0xFF;
+            int worth = data == 0 ? Integer.MIN_VALUE : depth(data) - 8 * age;
+            if (worth < victimWorth) {
+                victim = base + i;
+                victimWorth = worth;
+            }
+        }
+        long data = (move & 0xFFFFL)
+                | (score & 0xFFFFL) << SCORE_SHIFT
+                | (long) Math.min(Math.max(depth, 0), 0xFF) << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) current << GENERATION_SHIFT;
+        table[victim] = data;
+        table[victim + 1] = key ^ data;
+    }
+
+    /**
+     * @return per mille of the first thousand entries used in the current
+     * search, a cheap estimate of how full the table is
+     */
+    public int permilleFull() {
+        int sample = Math.min(1000, table.length / LONGS_PER_ENTRY);
+        int current = generation;
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            long data = table[i * LONGS_PER_ENTRY];
+            if (data != 0 && generation(data) == current) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    /**
+     * @return how many entries the table holds
+     */
+    public int capacity() {
+        return table.length / LONGS_PER_ENTRY;
+    }
+
+    private int bucketStart(long key) {
+        // The low bits pick the bucket; the full key is still checked on probe
+        return ((int) key & bucketMask) * BUCKET_ENTRIES * LONGS_PER_ENTRY;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> SCORE_SHIFT);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 0x3;
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> GENERATION_SHIFT) & 0xFF;
+    }
+}
@@ -0,0 +1,59 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AttackMapTests {
+
+    private static final String[] POSITIONS = {
+            Fen.START_POSITION,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+    };
+
+    @Test
+    public void legalTargetsMatchValidMoves() {
+        for (String fen : POSITIONS) {
+            ChessGame game = ChessGame.fromFen(fen);
+            for (int square = 0; square < 64; square++) {
+                long expected = 0L;
+                Collection<ChessMove> moves = game.validMoves(Bitboards.position(square));
+                if (moves != null) {
+                    for (ChessMove move : moves) {
+                        expected |= Bitboards.bit(Bitboards.square(move.getEndPosition()));
+                    }
+                }
+                assertEquals(expected, game.legalTargets(square), fen + " square " + square);
+            }
+        }
+    }
+
+    @Test
+    public void attackMapMatchesSquareTests() {
+        for (String fen : POSITIONS) {
+            ChessGame game = ChessGame.fromFen(fen);
+            for (ChessGame.TeamColor team : ChessGame.TeamColor.values()) {
+                long expected = 0L;
+                for (int square = 0; square < 64; square++) {
+                    if (game.getBoard().isSquareAttacked(square, team)) {
+                        expected |= Bitboards.bit(square);
+                    }
+                }
+                assertEquals(expected, game.attackMap(team), fen + " " + team);
+            }
+        }
+    }
+
+    @Test
+    public void emptySquareHasNoTargets() {
+        ChessGame game = new ChessGame();
+        assertEquals(0L, game.legalTargets(new ChessPosition(4, 4)));
+        // Pinned in place once the e-file opens
+        game.setBoard(ChessBoard.fromFen("4r1k1/8/8/8/8/8/4B3/4K3"));
+        assertEquals(0L, game.legalTargets(new ChessPosition(2, 5)));
+    }
+}
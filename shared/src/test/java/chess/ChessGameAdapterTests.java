@@ -0,0 +1,83 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChessGameAdapterTests {
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(ChessGame.class, new ChessGameAdapter()).create();
+
+    private static ChessGame middlegame() {
+        return ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b KQkq - 3 12");
+    }
+
+    @Test
+    public void boardMatchesReflectiveShape() {
+        ChessGame game = middlegame();
+        String reflected = new Gson().toJson(game.getBoard());
+        assertTrue(gson.toJson(game).startsWith("{\"board\":" + reflected + ",\"teamTurn\":\"BLACK\","));
+    }
+
+    @Test
+    public void readsPlainGsonJson() {
+        ChessGame game = middlegame();
+        ChessGame copy = gson.fromJson(new Gson().toJson(game), ChessGame.class);
+        assertEquals(game, copy);
+        assertEquals(game.toFen(), copy.toFen());
+    }
+
+    @Test
+    public void roundTrips() {
+        ChessGame game = middlegame();
+        ChessGame copy = gson.fromJson(gson.toJson(game), ChessGame.class);
+        assertEquals(game.positionKey(), copy.positionKey());
+        assertEquals(game.validMoves(new ChessPosition(8, 5)), copy.validMoves(new ChessPosition(8, 5)));
+    }
+
+    @Test
+    public void writesBoardEdits() {
+        for (ChessGameAdapter.Format format : ChessGameAdapter.Format.values()) {
+            Gson formatted = new GsonBuilder()
+                    .registerTypeAdapter(ChessGame.class, new ChessGameAdapter(format)).create();
+            ChessGame game = new ChessGame();
+            formatted.toJson(game);
+            game.getBoard().addPiece(new ChessPosition(2, 5), null);
+            assertEquals(game.toFen(), formatted.fromJson(formatted.toJson(game), ChessGame.class).toFen(), format.name());
+        }
+    }
+
+    @Test
+    public void nullsAndMalformedInput() {
+        assertEquals("null", gson.toJson(null, ChessGame.class));
+        assertNull(gson.fromJson("null", ChessGame.class));
+        assertThrows(JsonSyntaxException.class, () -> gson.fromJson("{\"teamTurn\":\"WHITE\"}", ChessGame.class));
+        assertThrows(JsonSyntaxException.class, () -> gson.fromJson(
+                "{\"board\":{\"board\":[[null,{\"pieceColor\":\"RED\",\"type\":\"KING\"}]]}}", ChessGame.class));
+        assertThrows(JsonSyntaxException.class, () -> gson.fromJson("{\"fen\":\"not a fen\"}", ChessGame.class));
+    }
+
+    @Test
+    public void rejectsOutOfRangeState() {
+        String board = new Gson().toJson(middlegame().getBoard());
+        for (String state : new String[]{
+                "\"castlingRights\":200,\"enPassantSquare\":-1",
+                "\"castlingRights\":-3,\"enPassantSquare\":-1",
+                "\"castlingRights\":0,\"enPassantSquare\":100",
+                "\"castlingRights\":0,\"enPassantSquare\":4",
+                // e6 is where white would take en passant, but it is black to move
+                "\"castlingRights\":0,\"enPassantSquare\":44",
+        }) {
+            String json = "{\"board\":" + board + ",\"teamTurn\":\"BLACK\"," + state + "}";
+            assertThrows(JsonSyntaxException.class, () -> gson.fromJson(json, ChessGame.class), state);
+        }
+
+        // In range, but e4 can't have just come from an occupied e2, so the square is dropped
+        String json = "{\"board\":" + board + ",\"teamTurn\":\"BLACK\",\"castlingRights\":15,\"enPassantSquare\":20}";
+        assertNull(gson.fromJson(json, ChessGame.class).getEnPassantPosition());
+    }
+}
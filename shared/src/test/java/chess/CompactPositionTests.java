@@ -0,0 +1,116 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactPositionTests {
+
+    @Test
+    public void roundTrips() {
+        for (String fen : new String[]{
+                Fen.START_POSITION,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "4k3/8/8/8/8/8/8/4K3 b - - 99 300",
+        }) {
+            ChessGame game = ChessGame.fromFen(fen);
+            byte[] bytes = game.toBytes();
+            assertEquals(CompactPosition.SIZE, bytes.length);
+
+            ChessGame copy = ChessGame.fromBytes(bytes);
+            assertEquals(fen, copy.toFen());
+            assertEquals(game.positionKey(), copy.positionKey());
+        }
+    }
+
+    @Test
+    public void rejectsOverfullBoards() {
+        ChessBoard board = new ChessBoard();
+        for (int square = 0; square < 33; square++) {
+            board.addPiece(square, ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        }
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        assertThrows(IllegalStateException.class, game::toBytes);
+    }
+
+    @Test
+    public void rejectsBadBytes() {
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromBytes(new byte[5]));
+
+        byte[] bytes = new ChessGame().toBytes();
+        bytes[0] = 0;
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromBytes(bytes));
+
+        byte[] badPiece = new ChessGame().toBytes();
+        badPiece[9] = (byte) 0xF0;
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromBytes(badPiece));
+
+        // e1 is never an en passant square, and e6 isn't one with black to move
+        byte[] onFirstRank = new ChessGame().toBytes();
+        onFirstRank[26] = 4 + 1;
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromBytes(onFirstRank));
+        byte[] wrongSide = ChessGame.fromFen("4k3/8/8/3Pp3/8/8/8/4K3 b - - 0 1").toBytes();
+        wrongSide[26] = 44 + 1;
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromBytes(wrongSide));
+    }
+
+    @Test
+    public void dropsEnPassantWithNoPawnToTake() {
+        byte[] bytes = ChessGame.fromFen("4k3/8/8/3PN3/8/8/8/4K3 w - - 0 1").toBytes();
+        bytes[26] = 44 + 1;
+        assertNull(ChessGame.fromBytes(bytes).getEnPassantPosition());
+
+        byte[] capturable = ChessGame.fromFen("4k3/8/8/3Pp3/8/8/8/4K3 w - e6 0 1").toBytes();
+        assertEquals(new ChessPosition(6, 5), ChessGame.fromBytes(capturable).getEnPassantPosition());
+    }
+
+    @Test
+    public void adapterBinaryFormat() throws InvalidMoveException {
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(ChessGame.class, new ChessGameAdapter(ChessGameAdapter.Format.BINARY)).create();
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+
+        String json = gson.toJson(game);
+        assertTrue(json.startsWith("{\"binary\":\""), json);
+        ChessGame copy = gson.fromJson(json, ChessGame.class);
+        assertEquals(game.toFen(), copy.toFen());
+        assertEquals(game.getRepetitionCount(), copy.getRepetitionCount());
+    }
+
+    @Test
+    public void adapterBinaryFormatPacksPositionKeys() throws InvalidMoveException {
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(ChessGame.class, new ChessGameAdapter(ChessGameAdapter.Format.BINARY)).create();
+        ChessGame game = new ChessGame();
+        for (int i = 0; i < 2; i++) {
+            game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+            game.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+            game.makeMove(new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null));
+            game.makeMove(new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null));
+        }
+
+        String json = gson.toJson(game);
+        assertFalse(json.contains("positionKeys"), json);
+        // The position followed by the keys of the 8 positions before it
+        String binary = new Gson().fromJson(json, com.google.gson.JsonObject.class).get("binary").getAsString();
+        assertEquals(CompactPosition.SIZE + 8 * Long.BYTES, java.util.Base64.getDecoder().decode(binary).length);
+        ChessGame copy = gson.fromJson(json, ChessGame.class);
+        assertEquals(3, copy.getRepetitionCount());
+        assertTrue(copy.isThreefoldRepetition());
+
+        // Keys given as a positionKeys array, as the other formats write them, are read too
+        String separateKeys = "{\"binary\":\"" + java.util.Base64.getEncoder().encodeToString(game.toBytes())
+                + "\",\"positionKeys\":" + new Gson().toJson(game.recentPositionKeys()) + "}";
+        assertEquals(3, gson.fromJson(separateKeys, ChessGame.class).getRepetitionCount());
+
+        assertThrows(JsonSyntaxException.class, () -> gson.fromJson("{\"binary\":\""
+                + java.util.Base64.getEncoder().encodeToString(new byte[CompactPosition.SIZE + 3]) + "\"}", ChessGame.class));
+    }
+}
@@ -0,0 +1,102 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DrawRulesTests {
+
+    private static final String[] KNIGHT_SHUFFLE = {"g1f3", "g8f6", "f3g1", "f6g8"};
+
+    private static ChessMove move(String coordinates) {
+        return new ChessMove(square(coordinates, 0), square(coordinates, 2), null);
+    }
+
+    private static ChessPosition square(String coordinates, int offset) {
+        return new ChessPosition(coordinates.charAt(offset + 1) - '0', coordinates.charAt(offset) - 'a' + 1);
+    }
+
+    private static void play(ChessGame game, String... moves) throws InvalidMoveException {
+        for (String m : moves) {
+            game.makeMove(move(m));
+        }
+    }
+
+    @Test
+    public void threefoldRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, KNIGHT_SHUFFLE);
+        assertEquals(2, game.getRepetitionCount());
+        assertFalse(game.isThreefoldRepetition());
+
+        play(game, KNIGHT_SHUFFLE);
+        assertTrue(game.isThreefoldRepetition());
+        assertEquals(8, game.getHalfmoveClock());
+
+        game.unmakeMove();
+        assertEquals(2, game.getRepetitionCount());
+    }
+
+    @Test
+    public void pawnMoveResetsClockAndRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, KNIGHT_SHUFFLE);
+        play(game, "e2e4");
+        assertEquals(0, game.getHalfmoveClock());
+        assertEquals(1, game.getRepetitionCount());
+        assertFalse(game.isFiftyMoveDraw());
+    }
+
+    @Test
+    public void lostCastlingRightsMakeADifferentPosition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "e7e5", "e1e2", "e8e7", "e2e1", "e7e8");
+        assertEquals(CastlingRights.NONE, game.getCastlingRights());
+
+        ChessGame fresh = new ChessGame();
+        play(fresh, "e2e4", "e7e5");
+        assertEquals(fresh.getBoard(), game.getBoard());
+        assertNotEquals(fresh.positionKey(), game.positionKey());
+        assertEquals(1, game.getRepetitionCount());
+    }
+
+    @Test
+    public void enPassantOnlyWhenCapturable() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4");
+        assertNull(game.getEnPassantPosition());
+
+        play(game, "a7a6", "e4e5", "d7d5");
+        assertEquals(new ChessPosition(6, 4), game.getEnPassantPosition());
+    }
+
+    @Test
+    public void adapterKeepsRulesState() throws InvalidMoveException {
+        Gson gson = new GsonBuilder().registerTypeAdapter(ChessGame.class, new ChessGameAdapter()).create();
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "a7a6", "e4e5", "d7d5");
+        play(game, "e1e2", "g8f6", "e2e1", "f6g8", "e1e2", "g8f6", "e2e1", "f6g8");
+        assertEquals(2, game.getRepetitionCount());
+
+        ChessGame copy = gson.fromJson(gson.toJson(game), ChessGame.class);
+        assertEquals(game.getCastlingRights(), copy.getCastlingRights());
+        assertEquals(game.getHalfmoveClock(), copy.getHalfmoveClock());
+        assertEquals(game.positionKey(), copy.positionKey());
+        play(copy, "e1e2", "g8f6", "e2e1", "f6g8");
+        assertTrue(copy.isThreefoldRepetition());
+    }
+
+    @Test
+    public void adapterReadsOldGames() {
+        Gson gson = new GsonBuilder().registerTypeAdapter(ChessGame.class, new ChessGameAdapter()).create();
+        String json = new Gson().toJson(new ChessGame())
+                .replaceAll(",\"castlingRights\":\\d+,\"enPassantSquare\":-?\\d+,\"halfmoveClock\":\\d+", "");
+        assertFalse(json.contains("castlingRights"));
+
+        ChessGame game = gson.fromJson(json, ChessGame.class);
+        assertEquals(CastlingRights.ALL, game.getCastlingRights());
+        assertEquals(new ChessGame().positionKey(), game.positionKey());
+    }
+}
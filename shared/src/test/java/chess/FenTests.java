@@ -0,0 +1,115 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FenTests {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @Test
+    public void startingPosition() {
+        assertEquals(Fen.START_POSITION, new ChessGame().toFen());
+
+        ChessGame game = ChessGame.fromFen(Fen.START_POSITION);
+        assertEquals(new ChessGame(), game);
+        assertEquals(new ChessGame().positionKey(), game.positionKey());
+    }
+
+    @Test
+    public void roundTrips() {
+        for (String fen : new String[]{
+                KIWIPETE,
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+        }) {
+            assertEquals(fen, ChessGame.fromFen(fen).toFen());
+        }
+    }
+
+    @Test
+    public void followsPlay() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        // No black pawn can take on e3, so no en passant square is recorded
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1", game.toFen());
+
+        game.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 1 2", game.toFen());
+        assertEquals(ChessGame.fromFen(game.toFen()).positionKey(), game.positionKey());
+    }
+
+    @Test
+    public void normalizesUnusableState() {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/8/4P3/8/8/4K2R b KQkq e3 5 40");
+        assertEquals("4k3/8/8/8/4P3/8/8/4K2R b K - 5 40", game.toFen());
+    }
+
+    @Test
+    public void dropsEnPassantWithNoPawnToTake() throws InvalidMoveException {
+        // A knight, not a pawn, stands past e6, so d5xe6 must not be en passant
+        ChessGame game = ChessGame.fromFen("4k3/8/8/3PN3/8/8/8/4K3 w - e6 0 1");
+        assertEquals("4k3/8/8/3PN3/8/8/8/4K3 w - - 0 1", game.toFen());
+        ChessMove capture = new ChessMove(new ChessPosition(5, 4), new ChessPosition(6, 5), null);
+        assertThrows(InvalidMoveException.class, () -> game.makeMove(capture));
+
+        // Nor when the pawn's origin is occupied, so it can't have just stepped two squares
+        assertEquals("4k3/4n3/8/3Pp3/8/8/8/4K3 w - - 0 1",
+                ChessGame.fromFen("4k3/4n3/8/3Pp3/8/8/8/4K3 w - e6 0 1").toFen());
+        assertEquals("4k3/8/8/3Pp3/8/8/8/4K3 w - e6 0 1",
+                ChessGame.fromFen("4k3/8/8/3Pp3/8/8/8/4K3 w - e6 0 1").toFen());
+    }
+
+    @Test
+    public void boardPlacement() {
+        ChessBoard board = ChessBoard.fromFen("8/8/8/8/8/8/8/4K3");
+        assertEquals(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                board.getPiece(new ChessPosition(1, 5)));
+        assertEquals("8/8/8/8/8/8/8/4K3", board.toFen());
+    }
+
+    @Test
+    public void rejectsMalformed() {
+        for (String fen : new String[]{
+                "",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/ppppxppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQxq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e4 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - -1 1",
+                // Pieces or empty squares past the eighth file
+                "8p/8/8/8/8/8/8/4K2k w - - 0 1",
+                "ppppppppp/8/8/8/8/8/8/4K2k w - - 0 1",
+                "rnbqkbnrX/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "4k3/8/8/8/8/8/8/4K2k1 w - - 0 1",
+                "4k3/8/8/8/8/8/8/44K w - - 0 1",
+        }) {
+            assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(fen), fen);
+        }
+    }
+
+    @Test
+    public void adapterFenFormat() throws InvalidMoveException {
+        Gson fenGson = new GsonBuilder()
+                .registerTypeAdapter(ChessGame.class, new ChessGameAdapter(ChessGameAdapter.Format.FEN)).create();
+        Gson boardGson = new GsonBuilder()
+                .registerTypeAdapter(ChessGame.class, new ChessGameAdapter()).create();
+        ChessGame game = ChessGame.fromFen(KIWIPETE);
+        game.makeMove(new ChessMove(new ChessPosition(1, 5), new ChessPosition(1, 7), null));
+
+        String json = fenGson.toJson(game);
+        assertTrue(json.length() < boardGson.toJson(game).length() / 4, json);
+        ChessGame copy = boardGson.fromJson(json, ChessGame.class);
+        assertEquals(game.toFen(), copy.toFen());
+        assertEquals(game.positionKey(), copy.positionKey());
+
+        // Either adapter reads what the other wrote
+        assertEquals(game.toFen(), fenGson.fromJson(boardGson.toJson(game), ChessGame.class).toFen());
+    }
+}
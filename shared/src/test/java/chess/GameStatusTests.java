@@ -0,0 +1,66 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+import passoff.chess.TestUtilities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameStatusTests {
+
+    private static ChessMove move(String coordinates) {
+        return new ChessMove(square(coordinates, 0), square(coordinates, 2), null);
+    }
+
+    private static ChessPosition square(String coordinates, int offset) {
+        return new ChessPosition(coordinates.charAt(offset + 1) - '0', coordinates.charAt(offset) - 'a' + 1);
+    }
+
+    @Test
+    public void startingPositionIsOngoingForBoth() {
+        ChessGame game = new ChessGame();
+        assertEquals(ChessGame.GameStatus.ONGOING, game.status());
+        assertEquals(ChessGame.GameStatus.ONGOING, game.status(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    public void statusFollowsMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        // Fool's mate
+        game.makeMove(move("f2f3"));
+        game.makeMove(move("e7e5"));
+        game.makeMove(move("g2g4"));
+        assertEquals(ChessGame.GameStatus.ONGOING, game.status(ChessGame.TeamColor.WHITE));
+        game.makeMove(move("d8h4"));
+
+        assertEquals(ChessGame.GameStatus.CHECKMATE, game.status());
+        assertEquals(ChessGame.GameStatus.ONGOING, game.status(ChessGame.TeamColor.BLACK));
+        assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+
+        game.unmakeMove();
+        assertEquals(ChessGame.GameStatus.ONGOING, game.status(ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    public void checkAndStalemate() {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard("""
+                |k| | | | | | | |
+                | | |Q| | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | |K|
+                """));
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertEquals(ChessGame.GameStatus.STALEMATE, game.status());
+        assertTrue(game.isInStalemate(ChessGame.TeamColor.BLACK));
+
+        // Editing the board directly must not leave a stale answer behind
+        game.getBoard().addPiece(new ChessPosition(7, 3), null);
+        game.getBoard().addPiece(new ChessPosition(6, 1), new ChessPiece(ChessGame.TeamColor.WHITE,
+                ChessPiece.PieceType.QUEEN));
+        assertEquals(ChessGame.GameStatus.CHECK, game.status());
+    }
+}
@@ -0,0 +1,164 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+import passoff.chess.TestUtilities;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Perft counts against published reference values. Castling rights come from
+ * setBoard's inference, which matches the FEN given for each position.
+ */
+public class PerftTests {
+
+    private static ChessGame gameFrom(String boardText, ChessGame.TeamColor toMove) {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard(boardText));
+        game.setTeamTurn(toMove);
+        return game;
+    }
+
+    private static void assertPerft(ChessGame game, long... expected) {
+        for (int depth = 1; depth <= expected.length; depth++) {
+            assertEquals(expected[depth - 1], Perft.perft(game, depth), "perft(" + depth + ")");
+        }
+    }
+
+    @Test
+    public void startingPosition() {
+        assertPerft(new ChessGame(), 20, 400, 8902, 197281, 4865609);
+    }
+
+    @Test
+    public void kiwipete() {
+        // r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -
+        ChessGame game = gameFrom("""
+                |r| | | |k| | |r|
+                |p| |p|p|q|p|b| |
+                |b|n| | |p|n|p| |
+                | | | |P|N| | | |
+                | |p| | |P| | | |
+                | | |N| | |Q| |p|
+                |P|P|P|B|B|P|P|P|
+                |R| | | |K| | |R|
+                """, ChessGame.TeamColor.WHITE);
+        assertPerft(game, 48, 2039, 97862);
+    }
+
+    @Test
+    public void rookAndPawnEndgame() {
+        // 8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -
+        ChessGame game = gameFrom("""
+                | | | | | | | | |
+                | | |p| | | | | |
+                | | | |p| | | | |
+                |K|P| | | | | |r|
+                | |R| | | |p| |k|
+                | | | | | | | | |
+                | | | | |P| |P| |
+                | | | | | | | | |
+                """, ChessGame.TeamColor.WHITE);
+        // Includes en passant captures that would expose the king along the rank
+        assertPerft(game, 14, 191, 2812, 43238, 674624);
+    }
+
+    @Test
+    public void castlingIntoPromotions() {
+        // r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq -
+        ChessGame game = gameFrom("""
+                |r| | | |k| | |r|
+                |P|p|p|p| |p|p|p|
+                | |b| | | |n|b|N|
+                |n|P| | | | | | |
+                |B|B|P| |P| | | |
+                |q| | | | |N| | |
+                |P|p| |P| | |P|P|
+                |R| | |Q| |R|K| |
+                """, ChessGame.TeamColor.WHITE);
+        assertPerft(game, 6, 264, 9467);
+    }
+
+    @Test
+    public void discoveredChecks() {
+        // rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ -
+        ChessGame game = gameFrom("""
+                |r|n|b|q| |k| |r|
+                |p|p| |P|b|p|p|p|
+                | | |p| | | | | |
+                | | | | | | | | |
+                | | |B| | | | | |
+                | | | | | | | | |
+                |P|P|P| |N|n|P|P|
+                |R|N|B|Q|K| | |R|
+                """, ChessGame.TeamColor.WHITE);
+        assertPerft(game, 44, 1486, 62379);
+    }
+
+    @Test
+    public void promotions() {
+        // n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - -
+        ChessGame game = gameFrom("""
+                |n| |n| | | | | |
+                |P|P|P|k| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K|p|p|p|
+                | | | | | |N| |N|
+                """, ChessGame.TeamColor.BLACK);
+        assertPerft(game, 24, 496, 9483, 182838);
+    }
+
+    @Test
+    public void divideSumsToPerft() {
+        ChessGame game = new ChessGame();
+        Map<String, Long> divide = Perft.divide(game, 3);
+        assertEquals(20, divide.size());
+        assertEquals(8902L, divide.values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(Long.valueOf(600), divide.get("e2e4"));
+    }
+
+    @Test
+    public void perftLeavesGameUnchanged() {
+        ChessGame game = new ChessGame();
+        long key = game.positionKey();
+        Perft.perft(game, 3);
+        assertEquals(new ChessGame(), game);
+        assertEquals(key, game.positionKey());
+        assertEquals(0, game.getUndoDepth());
+    }
+
+    @Test
+    public void rejectsBadDepth() {
+        assertThrows(IllegalArgumentException.class, () -> Perft.perft(new ChessGame(), 0));
+    }
+
+    @Test
+    public void parallelMatchesSequential() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(4085603L, Perft.parallelPerft(game, 4, pool, 0));
+            assertEquals(4085603L, Perft.parallelPerft(game, 4, pool, 4));
+            assertEquals(48L, Perft.parallelPerft(game, 1));
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(0, game.getUndoDepth());
+    }
+
+    @Test
+    public void cachedPerftCountsTranspositionsOnce() {
+        // Depth 5 from the start is full of move-order transpositions
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assertEquals(4865609L, Perft.parallelPerft(new ChessGame(), 5, pool, 8));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionSnapshotTests {
+
+    private static ChessMove move(String from, String to) {
+        return new ChessMove(position(from), position(to), null);
+    }
+
+    private static ChessPosition position(String square) {
+        return new ChessPosition(square.charAt(1) - '0', square.charAt(0) - 'a' + 1);
+    }
+
+    @Test
+    public void unchangedByLaterMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        PositionSnapshot before = game.snapshot();
+        game.makeMove(move("e2", "e4"));
+
+        assertEquals(Fen.START_POSITION, before.toFen());
+        assertEquals(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN), before.getPiece(position("e2")));
+        assertNull(before.getPiece(position("e4")));
+        assertEquals(game.toFen(), game.snapshot().toFen());
+        assertNotSame(before, game.snapshot());
+    }
+
+    @Test
+    public void uncheckedMovesAreNotPublished() {
+        ChessGame game = new ChessGame();
+        PositionSnapshot before = game.snapshot();
+        game.makeMoveUnchecked(move("g1", "f3"));
+        assertSame(before, game.snapshot());
+
+        game.publishSnapshot();
+        assertEquals(game.toFen(), game.snapshot().toFen());
+        game.unmakeMove();
+        assertNotEquals(game.toFen(), game.snapshot().toFen());
+    }
+
+    @Test
+    public void boardEditsArePublished() {
+        ChessGame game = new ChessGame();
+        PositionSnapshot before = game.snapshot();
+        game.getBoard().addPiece(position("e2"), null);
+
+        assertNotSame(before, game.snapshot());
+        assertNull(game.snapshot().getPiece(position("e2")));
+        assertEquals(game.toFen(), game.snapshot().toFen());
+        assertSame(game.snapshot(), game.snapshot());
+    }
+
+    @Test
+    public void toBoardIsIndependentCopy() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        PositionSnapshot snapshot = game.snapshot();
+        ChessBoard board = snapshot.toBoard();
+        assertEquals(game.getBoard(), board);
+
+        board.addPiece(position("e1"), null);
+        assertNotNull(snapshot.getPiece(position("e1")));
+        assertEquals(game.positionKey(), snapshot.positionKey());
+    }
+
+    @Test
+    public void readersOnlySeeWholeMoves() throws Exception {
+        ChessGame game = new ChessGame();
+        String[][] shuffle = {{"g1", "f3"}, {"g8", "f6"}, {"f3", "g1"}, {"f6", "g8"}};
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            try {
+                for (int i = 0; i < 20_000; i++) {
+                    PositionSnapshot snapshot = game.snapshot();
+                    assertEquals(32, Long.bitCount(snapshot.getOccupancy()));
+                    assertEquals(snapshot.positionKey(), ChessGame.fromFen(snapshot.toFen()).positionKey());
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 400; i++) {
+            String[] step = shuffle[i % shuffle.length];
+            game.makeMove(move(step[0], step[1]));
+            // Search on the owning thread must not leak into the snapshot
+            for (ChessMove reply : game.legalMoves()) {
+                game.makeMoveUnchecked(reply);
+                game.unmakeMove();
+            }
+        }
+        reader.join();
+        assertNull(failure.get());
+    }
+}
@@ -0,0 +1,70 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionValidatorTests {
+
+    @Test
+    public void acceptsLegalPositions() {
+        assertNull(PositionValidator.problem(Fen.START_POSITION));
+        assertNull(PositionValidator.problem("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"));
+        Gson gson = new GsonBuilder().registerTypeAdapter(ChessGame.class,
+                new ChessGameAdapter(ChessGameAdapter.Format.BINARY)).create();
+        assertNull(PositionValidator.problem(gson.toJson(new ChessGame())));
+        assertNull(PositionValidator.problem(new Gson().toJson(new ChessGame())));
+    }
+
+    @Test
+    public void reportsImpossiblePositions() {
+        assertNotNull(PositionValidator.problem("8/8/8/8/8/8/8/4K3 w - - 0 1"), "no black king");
+        assertNotNull(PositionValidator.problem("k7/8/8/8/8/8/8/KK6 w - - 0 1"), "two white kings");
+        assertNotNull(PositionValidator.problem("k6P/8/8/8/8/8/8/K7 w - - 0 1"), "pawn on last rank");
+        assertNotNull(PositionValidator.problem("k7/8/8/8/8/8/8/R6K w - - 0 1"), "side not to move in check");
+        assertNotNull(PositionValidator.problem("k7/pppppppp/p7/8/8/8/8/K7 w - - 0 1"), "nine pawns");
+    }
+
+    @Test
+    public void reportsUnreadablePositions() {
+        assertNotNull(PositionValidator.problem("not a fen"));
+        assertNotNull(PositionValidator.problem("{\"fen\":\"8/8 w\"}"));
+        assertNotNull(PositionValidator.problem("{\"board\":"));
+        assertNotNull(PositionValidator.problem((String) null));
+    }
+
+    @Test
+    public void validatesBatchesInOrder() {
+        List<String> positions = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            positions.add(i % 7 == 0 ? "k7/8/8/8/8/8/8/R6K w - - 0 1" : Fen.START_POSITION);
+        }
+        List<PositionValidator.Result> results = PositionValidator.validateAll(positions);
+        assertEquals(positions.size(), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).index());
+            assertEquals(i % 7 != 0, results.get(i).isValid(), "position " + i);
+        }
+    }
+
+    @Test
+    public void badRowsDoNotFailTheBatch() {
+        String board = new Gson().toJson(new ChessGame().getBoard());
+        String badState = "{\"board\":" + board + ",\"teamTurn\":\"WHITE\",\"castlingRights\":0,\"enPassantSquare\":100}";
+        String[] bad = {badState, "{\"board\":{\"board\":[[null],[null,{\"pieceColor\":null,\"type\":\"KING\"}]]}}",
+                "{\"binary\":\"AAAA\"}", "{\"fen\":5}", "not a fen", null};
+        List<String> positions = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            positions.add(i % 100 < bad.length ? bad[i % 100] : Fen.START_POSITION);
+        }
+        List<PositionValidator.Result> results = PositionValidator.validateAll(positions);
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i % 100 >= bad.length, results.get(i).isValid(), "position " + i);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package chess.engine;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EngineTests {
+
+    private final Engine engine = new Engine();
+
+    private static ChessMove move(String from, String to) {
+        return new ChessMove(position(from), position(to), null);
+    }
+
+    private static ChessPosition position(String square) {
+        return new ChessPosition(square.charAt(1) - '0', square.charAt(0) - 'a' + 1);
+    }
+
+    @Test
+    public void findsBackRankMate() {
+        SearchResult result = engine.analyze(ChessGame.fromFen("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1"), 3);
+        assertEquals(move("a1", "a8"), result.bestMove());
+        assertEquals(Search.MATE - 1, result.score());
+    }
+
+    @Test
+    public void findsMateInTwo() {
+        // 1. Ra7 Kg8 2. Rb8#
+        ChessGame game = ChessGame.fromFen("7k/8/8/8/8/8/1R6/R5K1 w - - 0 1");
+        SearchResult result = engine.analyze(game, 4);
+        assertTrue(Search.isMateScore(result.score()), "score " + result.score());
+        assertEquals(Search.MATE - 3, result.score());
+        assertEquals(3, result.principalVariation().size());
+    }
+
+    @Test
+    public void takesHangingQueen() {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/3q4/4P3/8/8/4K3 w - - 0 1");
+        assertEquals(move("e4", "d5"), engine.bestMove(game, Duration.ofMillis(200)));
+    }
+
+    @Test
+    public void avoidsLosingQueenForPawn() {
+        // Qxd5 wins a pawn but the c6 pawn takes back
+        ChessGame game = ChessGame.fromFen("4k3/8/2p5/3p4/8/8/3Q4/4K3 w - - 0 1");
+        assertNotEquals(move("d2", "d5"), engine.analyze(game, 3).bestMove());
+    }
+
+    @Test
+    public void noMoveWhenGameIsOver() {
+        ChessGame mated = ChessGame.fromFen("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+        SearchResult result = engine.analyze(mated, 3);
+        assertNull(result.bestMove());
+        assertEquals(-Search.MATE, result.score());
+
+        ChessGame stalemate = ChessGame.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        assertNull(engine.bestMove(stalemate, Duration.ofMillis(50)));
+    }
+
+    @Test
+    public void leavesCallersGameAlone() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        String fen = game.toFen();
+        SearchResult result = engine.analyze(game, 3);
+        assertEquals(fen, game.toFen());
+        assertEquals(0, game.getUndoDepth());
+        assertTrue(game.validMoves(result.bestMove().getStartPosition()).contains(result.bestMove()));
+    }
+
+    @Test
+    public void respectsTimeBudget() {
+        long start = System.nanoTime();
+        SearchResult result = engine.analyze(new ChessGame(), Duration.ofMillis(300));
+        long elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        assertTrue(elapsed < 2000, "took " + elapsed + "ms");
+        assertTrue(result.depth() >= 3, "depth " + result.depth());
+        assertNotNull(result.bestMove());
+    }
+
+    @Test
+    public void evaluationIsSymmetric() {
+        assertEquals(0, Evaluation.evaluate(new ChessGame().getBoard(), ChessGame.TeamColor.WHITE));
+        ChessBoard board = ChessBoard.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R");
+        ChessBoard mirrored = ChessBoard.fromFen("r3k2r/pppbbppp/2n2q1P/1P2p3/3pn3/BN2PNP1/P1PPQPB1/R3K2R");
+        assertEquals(Evaluation.evaluate(board, ChessGame.TeamColor.WHITE),
+                Evaluation.evaluate(mirrored, ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    public void parallelSearchFindsMateWithLine() {
+        try (Engine parallel = new Engine(4, 4)) {
+            SearchResult result = parallel.analyze(ChessGame.fromFen("7k/8/8/8/8/8/1R6/R5K1 w - - 0 1"),
+                    Duration.ofMillis(500));
+            assertEquals(Search.MATE - 3, result.score());
+            assertEquals(3, result.principalVariation().size());
+            assertEquals(result.bestMove(), result.principalVariation().get(0));
+        }
+    }
+
+    @Test
+    public void parallelSearchPlaysLegalMovesFromManyCallers() throws Exception {
+        try (Engine parallel = new Engine(4, 3)) {
+            ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+            SearchResult[] results = new SearchResult[3];
+            Thread[] callers = new Thread[results.length];
+            for (int i = 0; i < callers.length; i++) {
+                int slot = i;
+                callers[i] = new Thread(() -> results[slot] = parallel.analyze(game, Duration.ofMillis(300)));
+                callers[i].start();
+            }
+            for (Thread caller : callers) {
+                caller.join();
+            }
+            for (SearchResult result : results) {
+                ChessMove best = result.bestMove();
+                assertTrue(game.validMoves(best.getStartPosition()).contains(best), best.toString());
+                assertTrue(result.depth() >= 3, "depth " + result.depth());
+            }
+        }
+    }
+
+    @Test
+    public void rejectsNoThreads() {
+        assertThrows(IllegalArgumentException.class, () -> new Engine(1, 0));
+    }
+}
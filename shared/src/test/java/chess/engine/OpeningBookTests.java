@@ -0,0 +1,102 @@
+package chess.engine;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpeningBookTests {
+
+    private static Path file;
+    private static OpeningBook book;
+
+    @BeforeAll
+    public static void buildBook() throws IOException {
+        file = Files.createTempFile("book", ".bin");
+        file.toFile().deleteOnExit();
+        new OpeningBook.Builder().addLines(List.of(
+                "# comments and blank lines are skipped",
+                "",
+                "e2e4 e7e5 g1f3 b8c6 f1b5",
+                "e2e4 e7e5 g1f3 b8c6 f1c4",
+                "e2e4 c7c5 g1f3 d7d6",
+                "d2d4 d7d5 c2c4",
+                "g1f3 d7d5 d2d4 c7c6  # reaches the d4 d5 Nf3 position by another order")).write(file);
+        book = OpeningBook.open(file);
+    }
+
+    private static ChessGame play(String... moves) throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (String move : moves) {
+            game.makeMove(Move.toChessMove(Move.parse(move)));
+        }
+        return game;
+    }
+
+    private static ChessMove move(String text) {
+        return Move.toChessMove(Move.parse(text));
+    }
+
+    @Test
+    public void looksUpMovesByWeight() throws InvalidMoveException {
+        List<OpeningBook.Entry> start = book.entries(new ChessGame());
+        assertEquals(List.of(new OpeningBook.Entry(move("e2e4"), 3), new OpeningBook.Entry(move("d2d4"), 1),
+                new OpeningBook.Entry(move("g1f3"), 1)), start);
+        assertEquals(move("e7e5"), book.bestMove(play("e2e4")));
+        assertNull(book.bestMove(play("a2a3")));
+    }
+
+    @Test
+    public void findsTranspositions() throws InvalidMoveException {
+        // Only 1. Nf3 d5 2. d4 is in the book, but 1. d4 d5 2. Nf3 is the same position
+        ChessGame viaPawn = play("d2d4", "d7d5", "g1f3");
+        assertEquals(move("c7c6"), book.bestMove(viaPawn));
+        assertEquals(move("c2c4"), book.bestMove(play("d2d4", "d7d5")));
+    }
+
+    @Test
+    public void picksInProportionToWeight() {
+        Random random = new Random(7);
+        int e4 = 0;
+        for (int i = 0; i < 5000; i++) {
+            if (move("e2e4").equals(book.pickMove(new ChessGame(), random))) {
+                e4++;
+            }
+        }
+        assertTrue(Math.abs(e4 - 3000) < 150, "e2e4 picked " + e4 + " times");
+    }
+
+    @Test
+    public void engineAnswersFromBook() throws InvalidMoveException {
+        Engine engine = new Engine(1);
+        engine.setOpeningBook(book);
+        SearchResult result = engine.analyze(play("e2e4", "e7e5"), Duration.ofSeconds(10));
+        assertEquals(move("g1f3"), result.bestMove());
+        assertEquals(0, result.depth());
+
+        // Out of book, the engine searches as usual
+        assertTrue(engine.analyze(play("h2h4"), 2).depth() > 0);
+    }
+
+    @Test
+    public void rejectsBadInput() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> new OpeningBook.Builder().addLine("e2e5", 1));
+        assertThrows(IllegalArgumentException.class, () -> new OpeningBook.Builder().addLine("e2e4 e2e4", 1));
+        assertThrows(IllegalArgumentException.class, () -> new OpeningBook.Builder().addLine("e2e4 x", 1));
+
+        Path junk = Files.createTempFile("junk", ".bin");
+        junk.toFile().deleteOnExit();
+        Files.write(junk, new byte[20]);
+        assertThrows(IOException.class, () -> OpeningBook.open(junk));
+        Files.write(junk, Arrays.copyOf(Files.readAllBytes(file), 30));
+        assertThrows(IOException.class, () -> OpeningBook.open(junk));
+    }
+}
@@ -0,0 +1,150 @@
+package chess.engine;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TablebaseTests {
+
+    private static Tablebase tablebase;
+
+    @BeforeAll
+    public static void buildTables() throws IOException {
+        Path file = Files.createTempFile("tablebase", ".bin");
+        file.toFile().deleteOnExit();
+        new Tablebase.Builder().addAll(3).write(file);
+        tablebase = Tablebase.open(file);
+    }
+
+    private static Tablebase.Result probe(String fen) {
+        return tablebase.probe(ChessGame.fromFen(fen));
+    }
+
+    @Test
+    public void holdsEveryThreePieceTable() {
+        assertEquals(List.of("KBvK", "KNvK", "KPvK", "KQvK", "KRvK"), tablebase.materials());
+    }
+
+    @Test
+    public void findsMates() {
+        assertEquals(new Tablebase.Result(Tablebase.Outcome.WIN, 1), probe("7k/8/6K1/8/8/8/8/R7 w - - 0 1"));
+        assertEquals(new Tablebase.Result(Tablebase.Outcome.LOSS, 0), probe("R6k/8/6K1/8/8/8/8/8 b - - 0 1"));
+        assertEquals(new Tablebase.Result(Tablebase.Outcome.LOSS, 2), probe("7k/8/6K1/8/8/8/8/R7 b - - 0 1"));
+        assertEquals(1, probe("7k/8/6K1/8/8/8/8/R7 w - - 0 1").movesToMate());
+    }
+
+    @Test
+    public void knowsDrawnEndings() {
+        // Stalemate, a lone minor piece, and the defending king holding the opposition
+        assertEquals(Tablebase.Outcome.DRAW, probe("k7/2Q5/1K6/8/8/8/8/8 b - - 0 1").outcome());
+        assertEquals(Tablebase.Outcome.DRAW, probe("8/8/3k4/8/8/2B5/8/4K3 w - - 0 1").outcome());
+        assertEquals(Tablebase.Outcome.DRAW, probe("8/8/8/8/8/4k3/4P3/4K3 w - - 0 1").outcome());
+        assertEquals(Tablebase.Outcome.WIN, probe("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1").outcome());
+        assertEquals(Tablebase.Outcome.DRAW, probe("8/8/8/3k4/8/8/8/4K3 w - - 0 1").outcome());
+    }
+
+    @Test
+    public void answersForEitherColor() {
+        // The same KRvK and KPvK positions with the board turned around
+        assertEquals(probe("7k/8/8/8/8/8/8/KR6 w - - 0 1"), probe("kr6/8/8/8/8/8/8/7K b - - 0 1"));
+        assertEquals(probe("8/8/8/8/8/8/4P3/4K2k w - - 0 1"), probe("4k2K/4p3/8/8/8/8/8/8 b - - 0 1"));
+        // And mirrored left to right
+        assertEquals(probe("8/8/8/8/8/8/4P3/4K2k w - - 0 1"), probe("8/8/8/8/8/8/3P4/k2K4 w - - 0 1"));
+    }
+
+    @Test
+    public void agreesWithOneMoveLookahead() {
+        Random random = new Random(7);
+        int checked = 0;
+        while (checked < 2000) {
+            ChessGame game = randomPosition(random);
+            if (game == null) {
+                continue;
+            }
+            checked++;
+            Tablebase.Result result = tablebase.probe(game);
+            MoveList moves = new MoveList();
+            game.generateValidMoves(game.getTeamTurn(), moves);
+            if (moves.isEmpty()) {
+                Tablebase.Outcome expected = game.isInCheck(game.getTeamTurn())
+                        ? Tablebase.Outcome.LOSS : Tablebase.Outcome.DRAW;
+                assertEquals(new Tablebase.Result(expected, 0), result, game.toFen());
+                continue;
+            }
+
+            int fastestWin = Integer.MAX_VALUE;
+            int slowestLoss = -1;
+            boolean drawn = false;
+            for (int i = 0; i < moves.size(); i++) {
+                game.makeMoveUnchecked(moves.get(i));
+                Tablebase.Result after = tablebase.probe(game);
+                game.unmakeMove();
+                switch (after.outcome()) {
+                    case LOSS -> fastestWin = Math.min(fastestWin, after.distanceToMate() + 1);
+                    case DRAW -> drawn = true;
+                    case WIN -> slowestLoss = Math.max(slowestLoss, after.distanceToMate() + 1);
+                }
+            }
+            Tablebase.Result expected = fastestWin != Integer.MAX_VALUE
+                    ? new Tablebase.Result(Tablebase.Outcome.WIN, fastestWin)
+                    : drawn ? new Tablebase.Result(Tablebase.Outcome.DRAW, 0)
+                    : new Tablebase.Result(Tablebase.Outcome.LOSS, slowestLoss);
+            assertEquals(expected, result, game.toFen());
+        }
+    }
+
+    @Test
+    public void coversOnlySmallEndings() {
+        assertNull(tablebase.probe(new ChessGame()));
+        assertNull(probe("8/8/3k4/8/8/2B5/8/4K2R w - - 0 1"), "no KRBvK table");
+        assertNull(probe("8/8/3k4/8/8/8/8/4K2R w K - 0 1"), "castling rights");
+    }
+
+    @Test
+    public void rejectsBadInput() throws IOException {
+        Tablebase.Builder builder = new Tablebase.Builder();
+        assertThrows(IllegalArgumentException.class, () -> builder.add("KQQvKR"));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("KvK"));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("KXvK"));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("KQ"));
+        assertThrows(IllegalArgumentException.class, () -> builder.addAll(5));
+
+        Path notTables = Files.createTempFile("notTables", ".bin");
+        notTables.toFile().deleteOnExit();
+        Files.write(notTables, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17});
+        assertThrows(IOException.class, () -> Tablebase.open(notTables));
+    }
+
+    /**
+     * @return a legal position of two kings and one other piece, or null if
+     * the one drawn at random was illegal
+     */
+    private static ChessGame randomPosition(Random random) {
+        ChessPiece.PieceType[] extras = {ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+                ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.PAWN};
+        ChessPiece.PieceType extra = extras[random.nextInt(extras.length)];
+        ChessGame.TeamColor owner = random.nextBoolean() ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        int whiteKing = random.nextInt(64);
+        int blackKing = random.nextInt(64);
+        int square = extra == ChessPiece.PieceType.PAWN ? 8 + random.nextInt(48) : random.nextInt(64);
+        if (whiteKing == blackKing || square == whiteKing || square == blackKing) {
+            return null;
+        }
+        ChessBoard board = new ChessBoard();
+        board.addPiece(whiteKing, new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(blackKing, new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(square, new ChessPiece(owner, extra));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(random.nextBoolean() ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK);
+        // A king and rook left at home would be given castling rights
+        return PositionValidator.problem(game) == null && game.getCastlingRights() == 0 ? game : null;
+    }
+}
@@ -0,0 +1,115 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Move;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranspositionTableTests {
+
+    @Test
+    public void storesAndProbes() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 0x9E3779B97F4A7C15L;
+        assertEquals(0L, table.probe(key));
+
+        int move = Move.encode(12, 28);
+        table.store(key, move, -1234, 7, TranspositionTable.LOWER);
+        long entry = table.probe(key);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(-1234, TranspositionTable.score(entry));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(0L, table.probe(key + 1));
+
+        // Re-storing without a move keeps the one already known
+        table.store(key, Move.NONE, 50, 8, TranspositionTable.UPPER);
+        assertEquals(move, TranspositionTable.move(table.probe(key)));
+        assertEquals(50, TranspositionTable.score(table.probe(key)));
+    }
+
+    @Test
+    public void sizedInMegabytes() {
+        assertEquals(1 << 16, new TranspositionTable(1).capacity());
+        assertEquals(1 << 20, new TranspositionTable(16).capacity());
+        // Rounded down to a power of two
+        assertEquals(1 << 20, new TranspositionTable(31).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+    }
+
+    @Test
+    public void replacesShallowAndOldEntriesFirst() {
+        TranspositionTable table = new TranspositionTable(1);
+        int buckets = table.capacity() / 4;
+        // Five keys that all land in bucket 0
+        long[] keys = new long[5];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (long) (i + 1) * buckets << 8;
+        }
+        int[] depths = {9, 2, 7, 5};
+        for (int i = 0; i < 4; i++) {
+            table.store(keys[i], Move.NONE, 0, depths[i], TranspositionTable.EXACT);
+        }
+        table.store(keys[4], Move.NONE, 0, 1, TranspositionTable.EXACT);
+        assertEquals(0L, table.probe(keys[1]), "shallowest entry replaced");
+        assertNotEquals(0L, table.probe(keys[4]));
+
+        // Once a new search starts, entries left by the old one go first
+        table.newSearch();
+        table.store(keys[1], Move.NONE, 0, 1, TranspositionTable.EXACT);
+        assertEquals(0L, table.probe(keys[4]), "old shallow entry replaced first");
+        table.store(keys[4], Move.NONE, 0, 1, TranspositionTable.EXACT);
+        assertNotEquals(0L, table.probe(keys[1]));
+        assertEquals(0L, table.probe(keys[3]), "old depth 5 entry replaced before fresh depth 1 entry");
+    }
+
+    @Test
+    public void concurrentWritersNeverProduceForeignEntries() throws Exception {
+        TranspositionTable table = new TranspositionTable(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int seed = t;
+            threads.add(new Thread(() -> {
+                try {
+                    long state = seed * 0x9E3779B97F4A7C15L + 1;
+                    for (int i = 0; i < 200_000; i++) {
+                        state = state * 6364136223846793005L + 1442695040888963407L;
+                        // Few distinct keys, so threads keep colliding on the same entries
+                        long key = (state >>> 40) & 0x3FFF;
+                        int score = (int) (key % 20_000);
+                        long entry = table.probe(key);
+                        if (entry != 0) {
+                            assertEquals(score, TranspositionTable.score(entry));
+                        }
+                        table.store(key, Move.NONE, score, (int) (state & 31), TranspositionTable.EXACT);
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void engineReusesTableAcrossCalls() {
+        Engine engine = new Engine(1);
+        ChessGame game = ChessGame.fromFen(
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        long first = engine.analyze(game, 5).nodes();
+        long second = engine.analyze(game, 5).nodes();
+        assertTrue(second < first / 2, first + " then " + second);
+    }
+}